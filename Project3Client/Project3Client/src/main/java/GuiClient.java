@@ -42,10 +42,15 @@ public class GuiClient extends Application {
 	String currentPlayerId = "", currentUsername, localUsername;
 	ComboBox<String> recipientComboBox;
 	ListView<String> userListView;
-	boolean isMyTurn;
-	Label turnLabel, timerLabel, status, welcomeLabel;
+	boolean isMyTurn; // change through setMyTurn, which also updates the HINT button
+	boolean hintPending; // a HINT is waiting for its ANALYSIS; the button stays off until it arrives
+	boolean hintRequested; // ... and the board hasn't changed since, so the answer is still current
+	Label turnLabel, timerLabel, hintLabel, status, welcomeLabel;
+	Button hintBtn;
 	int turnSeconds, width=900, height=700;
-	Timer currentTimer;
+	int boardRows = 6, boardCols = 7; // Board shape of the current game, sent with GAME_STARTED
+	Timeline currentTimer; // Repaints the turn countdown from the turn deadline
+	long clockOffsetMillis = Long.MIN_VALUE; // Server clock minus ours, best estimate so far
 	NotificationManager notificationManager;
 
     public static void main(String[] args) {
@@ -58,6 +63,7 @@ public class GuiClient extends Application {
 		sceneMap = new HashMap<>();
 
 		clientConnection = new Client(data -> {
+			long receivedMillis = System.currentTimeMillis(); // before queueing, for the clock offset estimate
 			Platform.runLater(() -> {
 				Message msg = (Message) data;
 				switch (msg.getType()) {
@@ -66,12 +72,30 @@ public class GuiClient extends Application {
 						break;
 					case GAME_STARTED:
 						System.out.println("GAME_STARTED received! Switching to game scene.");
+						setBoardShape(msg.getMessage());
 						createGameGui();
 						showGameScene();
 						break;
 					case BOARD_UPDATE:
 						System.out.println("Updating board...");
 						updateBoard(msg.getMessage());
+						if (hintLabel != null) {
+							hintLabel.setText(""); // any hint shown was for the previous position
+						}
+						hintRequested = false; // a reply still on its way is for that position too
+						break;
+					case ANALYSIS:
+						// An empty analysis means the server turned the request down
+						if (isMyTurn && hintRequested) {
+							if (msg.getMessage().isEmpty()) {
+								hintLabel.setText("");
+							} else {
+								showHint(msg.getMessage());
+							}
+						}
+						hintRequested = false;
+						hintPending = false;
+						updateHintButton();
 						break;
 					case TURN:
 						handleTurnChange(msg.getMessage());
@@ -92,13 +116,12 @@ public class GuiClient extends Application {
 							createGameGui();
 						}
 						resetBoard();
-						isMyTurn = false;
+						setMyTurn(false);
 						turnLabel.setText("Waiting for opponent...");
 						mainStage.setScene(sceneMap.get("game"));
 						break;
 					case TIMER_UPDATE:
-						turnSeconds = Integer.parseInt(msg.getMessage());
-						updateTimerLabel(turnSeconds);
+						updateTimerLabel(msg.getMessage(), receivedMillis);
 						break;
 					case LEADERBOARD:
 						String leaderboardData = msg.getMessage();
@@ -684,29 +707,46 @@ public class GuiClient extends Application {
 		VBox timeBox = new VBox(10, pickTimeLabel, timerSlider, timeLabel);
 		timeBox.setAlignment(Pos.CENTER);
 
+		// Board size selection, sent to the server as rows,cols,connect
+		Label boardSizeLabel = new Label("Board size:");
+		boardSizeLabel.setId("section-label");
+
+		ComboBox<String> boardSizeBox = new ComboBox<>();
+		boardSizeBox.getItems().addAll("6x7 Connect 4", "7x8 Connect 4", "8x8 Connect 4", "9x9 Connect 5");
+		boardSizeBox.setValue("6x7 Connect 4"); // Default to the classic board
+
+		VBox boardSizeSelection = new VBox(10, boardSizeLabel, boardSizeBox);
+		boardSizeSelection.setAlignment(Pos.CENTER);
+
 		// Create AI selection (optional opponent type)
 		ToggleGroup aiToggleGroup = new ToggleGroup();
 		RadioButton noAIRadio = new RadioButton("Human Opponent");
 		RadioButton easyAIRadio = new RadioButton("Easy AI");
 		RadioButton hardAIRadio = new RadioButton("Hard AI");
+		RadioButton expertAIRadio = new RadioButton("Expert AI");
+		RadioButton mctsAIRadio = new RadioButton("MCTS AI");
 
 		noAIRadio.setId("radio-human");
 		easyAIRadio.setId("radio-easy");
 		hardAIRadio.setId("radio-hard");
+		expertAIRadio.setId("radio-expert");
+		mctsAIRadio.setId("radio-mcts");
 
 		noAIRadio.setToggleGroup(aiToggleGroup);
 		easyAIRadio.setToggleGroup(aiToggleGroup);
 		hardAIRadio.setToggleGroup(aiToggleGroup);
+		expertAIRadio.setToggleGroup(aiToggleGroup);
+		mctsAIRadio.setToggleGroup(aiToggleGroup);
 
 		noAIRadio.setSelected(true); // Default to human opponent
 
 		// Group opponent selection buttons
-		VBox aiSelectionBox = new VBox(10, selectOpponentLabel, noAIRadio, easyAIRadio, hardAIRadio);
+		VBox aiSelectionBox = new VBox(10, selectOpponentLabel, noAIRadio, easyAIRadio, hardAIRadio, expertAIRadio, mctsAIRadio);
 		aiSelectionBox.setAlignment(Pos.CENTER_LEFT);
 		aiSelectionBox.setPadding(new Insets(0, 0, 0, 20));
 
 		// Central VBox containing all settings
-		VBox centerBox = new VBox(20, titleLabel, timeBox, aiSelectionBox, createGameBtn);
+		VBox centerBox = new VBox(20, titleLabel, timeBox, boardSizeSelection, aiSelectionBox, createGameBtn);
 		centerBox.setAlignment(Pos.CENTER);
 		centerBox.setPadding(new Insets(10));
 
@@ -738,10 +778,18 @@ public class GuiClient extends Application {
 				messageContent = "1," + selectedTime; // 1 = Easy AI
 			} else if (hardAIRadio.isSelected()) {
 				messageContent = "2," + selectedTime; // 2 = Hard AI
+			} else if (expertAIRadio.isSelected()) {
+				messageContent = "3," + selectedTime; // 3 = Expert AI
+			} else if (mctsAIRadio.isSelected()) {
+				messageContent = "4," + selectedTime; // 4 = Monte Carlo tree search AI
 			} else {
 				messageContent = "0," + selectedTime; // 0 = Human opponent
 			}
 
+			// Append the board shape, e.g. "9x9 Connect 5" becomes ",9,9,5"
+			String[] shape = boardSizeBox.getValue().split("[x ]");
+			messageContent += "," + shape[0] + "," + shape[1] + "," + shape[3];
+
 			// Send game creation request to server
 			if (noAIRadio.isSelected()) {
 				clientConnection.send(new Message(MessageType.CREATE_GAME, messageContent, null));
@@ -915,17 +963,18 @@ public class GuiClient extends Application {
 		timerLabel = new Label("TIME LEFT: 0");
 		timerLabel.getStyleClass().add("timer-label");
 
-		// Create Connect 4 board grid (6 rows × 7 columns)
+		// Create Connect 4 board grid (boardRows × boardCols, 6 × 7 by default)
 		gameBoard = new GridPane();
 		gameBoard.getStyleClass().add("game-board");
 		gameBoard.setHgap(5); // horizontal gap between cells
 		gameBoard.setVgap(5); // vertical gap between cells
 
 		// Populate grid with clickable buttons
-		for (int row = 0; row < 6; row++) {
-			for (int col = 0; col < 7; col++) {
+		for (int row = 0; row < boardRows; row++) {
+			for (int col = 0; col < boardCols; col++) {
 				Button cell = new Button();
 				cell.getStyleClass().add("game-cell");
+				cell.setStyle(cellSizeStyle()); // Shrink cells so larger boards still fit
 
 				int finalCol = col; // required because lambda needs final/effectively-final
 				cell.setOnAction(e -> {
@@ -933,11 +982,11 @@ public class GuiClient extends Application {
 						System.out.println("MOVE: Column " + finalCol);
 						clientConnection.send(new Message(MessageType.MOVE, Integer.toString(finalCol), null));
 						if (currentTimer != null) {
-							currentTimer.cancel();
+							currentTimer.stop();
 						}
 						turnLabel.setText("OPPONENT'S TURN");
 						timerLabel.setText("TIME LEFT: 0");
-						isMyTurn = false;
+						setMyTurn(false);
 					}
 				});
 
@@ -945,8 +994,24 @@ public class GuiClient extends Application {
 			}
 		}
 
+		// Hint button asks the server to score every column of the current position
+		hintLabel = new Label("");
+		hintLabel.getStyleClass().add("timer-label");
+		hintBtn = new Button("HINT");
+		hintBtn.getStyleClass().add("send-button");
+		updateHintButton();
+		hintBtn.setOnAction(e -> {
+			hintPending = true;
+			hintRequested = true;
+			updateHintButton();
+			hintLabel.setText("Thinking...");
+			clientConnection.send(new Message(MessageType.ANALYZE, "", null));
+		});
+		HBox hintBox = new HBox(10, hintBtn, hintLabel);
+		hintBox.setAlignment(Pos.CENTER_LEFT);
+
 		// Add all game area elements to VBox
-		gameBox.getChildren().addAll(gameTitle, turnLabel, timerLabel, gameBoard);
+		gameBox.getChildren().addAll(gameTitle, turnLabel, timerLabel, gameBoard, hintBox);
 
 		//----------------------------------------
 		// CHAT AREA SETUP
@@ -1028,8 +1093,8 @@ public class GuiClient extends Application {
 		String[] rows = boardString.split(",");
 
 		// Loop through each cell (row, column)
-		for (int row = 0; row < 6; row++) {
-			for (int col = 0; col < 7; col++) {
+		for (int row = 0; row < boardRows; row++) {
+			for (int col = 0; col < boardCols; col++) {
 				// Find the Button at this (col, row) position
 				Button cell = (Button) getNodeFromGridPane(gameBoard, col, row);
 				// Get the value for this cell (e.g., '0' empty, '1' player 1, '2' player 2)
@@ -1048,6 +1113,25 @@ public class GuiClient extends Application {
 		}
 	}
 
+	// Reads the board shape from a GAME_STARTED payload ending in rows,cols,connect
+	public void setBoardShape(String gameStarted) {
+		String[] parts = gameStarted.split(",");
+		if (parts.length >= 3) {
+			boardRows = Integer.parseInt(parts[parts.length - 3]);
+			boardCols = Integer.parseInt(parts[parts.length - 2]);
+		} else {
+			// Older servers only play the classic board
+			boardRows = 6;
+			boardCols = 7;
+		}
+	}
+
+	// Inline size for board cells: 60px on the classic board, smaller as the board grows
+	private String cellSizeStyle() {
+		int size = Math.min(60, 420 / Math.max(boardRows, boardCols));
+		return "-fx-pref-width: " + size + "; -fx-pref-height: " + size + "; -fx-background-radius: " + size / 2 + ";";
+	}
+
 	// Helper method to retrieve a specific node (button) from the GridPane based on column and row
 	private javafx.scene.Node getNodeFromGridPane(GridPane gridPane, int col, int row) {
 		// Loop through all children nodes in the GridPane
@@ -1065,32 +1149,92 @@ public class GuiClient extends Application {
 		return null;
 	}
 
-	// Starts or updates the turn countdown timer label on the game scene
-	public void updateTimerLabel(int seconds) {
+	// Starts or updates the turn countdown timer label on the game scene. The TIMER_UPDATE payload
+	// is "deadline,serverNow" in server epoch millis; the deadline is moved onto our clock and the
+	// label is repainted locally each time a whole second runs out, with no further messages.
+	public void updateTimerLabel(String payload, long receivedMillis) {
 		// Cancel any previous timer if it exists
 		if (currentTimer != null) {
-			currentTimer.cancel();
+			currentTimer.stop();
 		}
 
-		// Create a new timer
-		currentTimer = new Timer();
-		final int[] remaining = {seconds}; // Use an array to modify inside inner class
-
-		// Schedule a task to run every 1 second
-		currentTimer.scheduleAtFixedRate(new TimerTask() {
-			@Override
-			public void run() {
-				if (remaining[0] <= 0) {
-					// When time runs out, set label to 0 and cancel timer
-					Platform.runLater(() -> timerLabel.setText("Time Left: 0"));
-					currentTimer.cancel();
-				} else {
-					// Update the label each second with the remaining time
-					Platform.runLater(() -> timerLabel.setText("Time Left: " + remaining[0]));
-					remaining[0]--; // Decrease remaining seconds
-				}
+		String[] parts = payload.split(",");
+		long deadline;
+		if (parts.length < 2) {
+			deadline = receivedMillis + Long.parseLong(parts[0]) * 1000; // plain duration in seconds
+		} else {
+			// serverNow was read before the message travelled, so each sample underestimates the
+			// offset by the transit time: the largest sample is the closest one
+			clockOffsetMillis = Math.max(clockOffsetMillis, Long.parseLong(parts[1]) - receivedMillis);
+			deadline = Long.parseLong(parts[0]) - clockOffsetMillis;
+		}
+
+		// Already past when the message arrived late or our clock jumped ahead: show 0, and keep the
+		// key frame times below from going negative
+		long remaining = Math.max(0, deadline - System.currentTimeMillis());
+		turnSeconds = (int) ((remaining + 999) / 1000);
+		timerLabel.setText("Time Left: " + turnSeconds);
+
+		// One key frame per change of the label, when the next whole second runs out
+		currentTimer = new Timeline();
+		for (long at = remaining % 1000; at <= remaining; at += 1000) {
+			int secondsLeft = (int) ((remaining - at) / 1000);
+			currentTimer.getKeyFrames().add(new KeyFrame(Duration.millis(at), e -> {
+				turnSeconds = secondsLeft;
+				timerLabel.setText("Time Left: " + secondsLeft);
+			}));
+		}
+		currentTimer.play();
+	}
+
+	// Shows the best column from an ANALYSIS payload: one entry per column, "W<n>" a forced win
+	// n plies away, "L<n>" a forced loss, "x" a full column, otherwise a plain score
+	public void showHint(String analysis) {
+		String[] entries = analysis.split(",");
+		int bestCol = -1;
+		long bestRank = Long.MIN_VALUE;
+		for (int col = 0; col < entries.length; col++) {
+			String entry = entries[col].trim();
+			long rank;
+			if (entry.equals("x")) {
+				continue;
+			} else if (entry.startsWith("W")) {
+				rank = 1_000_000L - Integer.parseInt(entry.substring(1)); // sooner wins rank higher
+			} else if (entry.startsWith("L")) {
+				rank = -1_000_000L + Integer.parseInt(entry.substring(1)); // later losses rank higher
+			} else {
+				rank = Integer.parseInt(entry);
 			}
-		}, 0, 1000); // Start immediately, repeat every 1000ms (1 second)
+			if (rank > bestRank) {
+				bestRank = rank;
+				bestCol = col;
+			}
+		}
+
+		if (bestCol == -1) {
+			hintLabel.setText("No moves left.");
+			return;
+		}
+		String best = entries[bestCol].trim();
+		String text = "Hint: column " + (bestCol + 1);
+		if (best.startsWith("W")) {
+			text += " wins in " + (Integer.parseInt(best.substring(1)) + 1) / 2 + " move(s)";
+		} else if (best.startsWith("L")) {
+			text += " holds out longest";
+		}
+		hintLabel.setText(text);
+	}
+
+	public void setMyTurn(boolean myTurn) {
+		isMyTurn = myTurn;
+		updateHintButton();
+	}
+
+	// Hints are only for the player to move, one at a time
+	private void updateHintButton() {
+		if (hintBtn != null) {
+			hintBtn.setDisable(!isMyTurn || hintPending);
+		}
 	}
 
 	// Handles switching turn display and enabling/disabling move inputs based on active player
@@ -1098,24 +1242,24 @@ public class GuiClient extends Application {
 		if (playerId.equals(currentPlayerId)) {
 			// It's our turn
 			turnLabel.setText("Your Turn");
-			isMyTurn = true;
+			setMyTurn(true);
 		} else {
 			// It's opponent's turn
 			turnLabel.setText("Opponent's Turn");
-			isMyTurn = false;
+			setMyTurn(false);
 		}
 	}
 
 	// Resets the Connect 4 board UI to its initial empty state
 	public void resetBoard() {
-		// Loop through each cell on the 6x7 grid
-		for (int row = 0; row < 6; row++) {
-			for (int col = 0; col < 7; col++) {
+		// Loop through each cell on the grid
+		for (int row = 0; row < boardRows; row++) {
+			for (int col = 0; col < boardCols; col++) {
 				// Get the Button at (col, row)
 				Button cell = (Button) getNodeFromGridPane(gameBoard, col, row);
 				if (cell != null) {
 					// Reset the button's background color to light gray (empty)
-					cell.setStyle("-fx-background-color: lightgray;");
+					cell.setStyle(cellSizeStyle() + "-fx-background-color: lightgray;");
 				}
 			}
 		}
@@ -1136,8 +1280,9 @@ public class GuiClient extends Application {
 
 		// Cancel the turn timer if it's still running
 		if (currentTimer != null) {
-			currentTimer.cancel();
+			currentTimer.stop();
 		}
+		setMyTurn(false); // no more moves or hints in this game
 
 		// Create "Return to Lobby" button
 		Button returnBtn = new Button("⬅");
@@ -1163,7 +1308,7 @@ public class GuiClient extends Application {
 			turnLabel.setText("Waiting for opponent to accept rematch...");
 			mainStage.setScene(sceneMap.get("game")); // Go back to game screen
 			resetBoard(); // Clear the board for new match
-			isMyTurn = false;
+			setMyTurn(false);
 		});
 
 		// VBox to group winner label and buttons vertically
@@ -38,5 +38,7 @@ public enum MessageType {
     LOG_OUT,
     CREATE_BOT_GAME,
     GET_CHAT_RECIPIENTS,
-    CHAT_RECIPIENTS
+    CHAT_RECIPIENTS,
+    ANALYZE,
+    ANALYSIS
 }
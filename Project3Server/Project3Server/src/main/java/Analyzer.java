@@ -0,0 +1,125 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Scores every column of a position for the player to move, for the ANALYZE hint request.
+// Each analysis is a full-window negamax per column under a strict time cap, and results are
+// cached by position key so asking again for the same position costs nothing. A position is only
+// ever searched once at a time: requests arriving while it is being analysed share that search.
+//
+// Wire format (the ANALYSIS payload), one comma-separated entry per column, left to right:
+//   W<n>  the player wins by force, the game ending n plies from now
+//   L<n>  the opponent wins by force n plies from now
+//   x     the column is full
+//   <int> heuristic score, higher is better for the player to move
+public final class Analyzer {
+    public static final long TIME_CAP_MILLIS = 300;
+    private static final int MAX_DEPTH = BoardGeometry.MAX_ROWS * BoardGeometry.MAX_COLS;
+    private static final int CACHE_SIZE = 4096;
+
+    private final Map<Long, String> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Long, String>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+    private final Map<Long, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger searches = new AtomicInteger();
+    private final long timeCapMillis;
+
+    public Analyzer() {
+        this(TIME_CAP_MILLIS);
+    }
+
+    public Analyzer(long timeCapMillis) {
+        this.timeCapMillis = timeCapMillis;
+    }
+
+    // Cached analysis of the snapshot's position, or null if it hasn't been analysed yet
+    public String getCached(GameSnapshot position) {
+        return cache.get(position.getPositionKey());
+    }
+
+    // Number of searches run so far
+    public int getSearchCount() {
+        return searches.get();
+    }
+
+    // Analysis of the snapshot's position, searching on the calling thread if it isn't cached or
+    // already being searched. Blocks for up to the time cap.
+    public String analyze(GameSnapshot position) {
+        return analyzeAsync(position, Runnable::run).join();
+    }
+
+    // Analysis of the snapshot's position: completed at once from the cache, the search already
+    // running for it, or a new search on 'searchPool'. Nothing waits on a thread meanwhile.
+    public CompletableFuture<String> analyzeAsync(GameSnapshot position, Executor searchPool) {
+        String cached = getCached(position);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long key = position.getPositionKey();
+        CompletableFuture<String> analysis = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, analysis);
+        if (running != null) {
+            return running;
+        }
+        searchPool.execute(() -> {
+            try {
+                analysis.complete(search(position));
+            } catch (Throwable t) {
+                analysis.completeExceptionally(t);
+            } finally {
+                inFlight.remove(key, analysis);
+            }
+        });
+        return analysis;
+    }
+
+    private String search(GameSnapshot position) {
+        String cached = getCached(position); // finished just before this request registered
+        if (cached != null) {
+            return cached;
+        }
+        searches.incrementAndGet();
+        Connect4Game game = position.toGame();
+        int[] scores = new int[game.getCols()];
+        long deadline = System.nanoTime() + timeCapMillis * 1_000_000L;
+        TranspositionTable tt = TranspositionTable.shared();
+        long search = tt.newSearch(); // registered like a bot search, so its deeper entries are kept
+        try {
+            new NegamaxBot.Search(game, Long.MAX_VALUE, deadline, tt, null).scoreColumns(MAX_DEPTH, scores);
+        } finally {
+            tt.endSearch(search);
+        }
+
+        String analysis = format(scores, game.getMoveCount());
+        cache.put(position.getPositionKey(), analysis); // before leaving inFlight, so no gap to search again
+        return analysis;
+    }
+
+    static String format(int[] scores, int ply) {
+        StringBuilder sb = new StringBuilder();
+        for (int col = 0; col < scores.length; col++) {
+            if (col > 0) {
+                sb.append(',');
+            }
+            int score = scores[col];
+            if (score == Integer.MIN_VALUE) {
+                sb.append('x');
+            } else if (score >= NegamaxBot.DECIDED) {
+                sb.append('W').append(NegamaxBot.WIN - score - ply);
+            } else if (score <= -NegamaxBot.DECIDED) {
+                sb.append('L').append(NegamaxBot.WIN + score - ply);
+            } else {
+                sb.append(score);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Board shape (rows, columns, discs in a row to win) and the lookup tables derived from it.
+// Instances are immutable and shared by every game of the same shape.
+public final class BoardGeometry {
+    public static final int MAX_ROWS = 16;
+    public static final int MAX_COLS = 16;
+
+    private static final Map<Integer, BoardGeometry> CACHE = new ConcurrentHashMap<>();
+
+    public static final BoardGeometry STANDARD = of(6, 7, 4);
+
+    final int rows;
+    final int cols;
+    final int connect;
+
+    // Bitboard layout: each column takes rows + 1 bits, bottom row first, so cell (row, col)
+    // counted from the bottom is bit col * columnBits + row. The extra bit on top of every
+    // column stays empty and stops lines from wrapping into the next column. Boards wider
+    // than one long spill into more words.
+    final int columnBits;
+    final int bits;
+    final int words;
+    final long[] boardMask; // every real cell, without the sentinel bits
+    final int[] lineSteps;  // bit distance between neighbours: horizontal, vertical, both diagonals
+
+    // Zobrist keys per side and bit index, plus the same keys looked up through the left-right
+    // mirror so the mirrored position's key can be kept alongside at no extra cost. Seeds are
+    // fixed per shape so keys stay stable across restarts and can be stored.
+    final long[][] zobrist;
+    final long[][] mirrorZobrist;
+    final long sideToMoveKey;
+    final long emptyKey;
+
+    private final int[] centerFirstColumns;
+
+    private BoardGeometry(int rows, int cols, int connect) {
+        this.rows = rows;
+        this.cols = cols;
+        this.connect = connect;
+        this.columnBits = rows + 1;
+        this.bits = cols * columnBits;
+        this.words = (bits + 63) >>> 6;
+        this.lineSteps = new int[]{columnBits, 1, columnBits - 1, columnBits + 1};
+        this.boardMask = new long[words];
+        for (int col = 0; col < cols; col++) {
+            for (int row = 0; row < rows; row++) {
+                int bit = col * columnBits + row;
+                boardMask[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        Random random = new Random(0x4C6F6E67436F6E34L ^ code(rows, cols, connect));
+        zobrist = new long[2][bits];
+        mirrorZobrist = new long[2][bits];
+        for (int side = 0; side < 2; side++) {
+            for (int bit = 0; bit < bits; bit++) {
+                zobrist[side][bit] = random.nextLong();
+            }
+        }
+        for (int side = 0; side < 2; side++) {
+            for (int col = 0; col < cols; col++) {
+                for (int row = 0; row < rows; row++) {
+                    mirrorZobrist[side][col * columnBits + row] = zobrist[side][(cols - 1 - col) * columnBits + row];
+                }
+            }
+        }
+        sideToMoveKey = random.nextLong();
+        emptyKey = random.nextLong(); // keeps equal disc layouts on different shapes apart
+
+        // Middle column first, then outwards, left before right on ties
+        centerFirstColumns = new int[cols];
+        for (int i = 0; i < cols; i++) {
+            int col = i;
+            int j = i;
+            while (j > 0 && distanceFromCenter(centerFirstColumns[j - 1]) > distanceFromCenter(col)) {
+                centerFirstColumns[j] = centerFirstColumns[j - 1];
+                j--;
+            }
+            centerFirstColumns[j] = col;
+        }
+    }
+
+    // Twice the distance from the middle of the board, so even widths stay in whole numbers
+    private int distanceFromCenter(int col) {
+        return Math.abs(2 * col - (cols - 1));
+    }
+
+    // Returns the shared geometry for this shape, or throws if the shape isn't supported
+    public static BoardGeometry of(int rows, int cols, int connect) {
+        if (rows < 1 || rows > MAX_ROWS || cols < 1 || cols > MAX_COLS) {
+            throw new IllegalArgumentException("Unsupported board size " + rows + "x" + cols);
+        }
+        if (connect < 2 || connect > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("Unsupported line length " + connect + " for " + rows + "x" + cols);
+        }
+        return CACHE.computeIfAbsent(code(rows, cols, connect), c -> new BoardGeometry(rows, cols, connect));
+    }
+
+    // Parses "rows,cols,connect" starting at parts[offset], falling back to the standard board
+    // when the fields are absent
+    public static BoardGeometry parse(String[] parts, int offset) {
+        if (parts.length < offset + 3) {
+            return STANDARD;
+        }
+        return of(Integer.parseInt(parts[offset].trim()),
+                Integer.parseInt(parts[offset + 1].trim()),
+                Integer.parseInt(parts[offset + 2].trim()));
+    }
+
+    private static int code(int rows, int cols, int connect) {
+        return (rows << 16) | (cols << 8) | connect;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getConnect() {
+        return connect;
+    }
+
+    // Number of longs in one bitboard, for sizing arrays passed to the threat queries
+    public int getWords() {
+        return words;
+    }
+
+    // Bit index of a cell, rows counted from the bottom
+    public int bitIndex(int row, int col) {
+        return col * columnBits + row;
+    }
+
+    // Columns ordered from the middle outwards. Shared array, do not modify.
+    public int[] getCenterFirstColumns() {
+        return centerFirstColumns;
+    }
+
+    // Short label for lobby listings, e.g. "8x8 connect 4"
+    public String getLabel() {
+        return rows + "x" + cols + " connect " + connect;
+    }
+
+    // Wire format used in CREATE_GAME and GAME_STARTED
+    @Override
+    public String toString() {
+        return rows + "," + cols + "," + connect;
+    }
+}
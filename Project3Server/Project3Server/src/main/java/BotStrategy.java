@@ -0,0 +1,49 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// A way for the server to pick the bot's column. Implementations get a private copy of the
+// game with the bot to move, so they may play/undo on it freely, and must be safe to share
+// between games running on different threads.
+public interface BotStrategy {
+
+    // Returns the column to play, or -1 if the board is full
+    int chooseMove(Connect4Game game);
+
+    // Same, but gives up early once 'stop' is set; used for pondering. Strategies that can't be
+    // interrupted ignore the flag.
+    default int chooseMove(Connect4Game game, AtomicBoolean stop) {
+        return chooseMove(game);
+    }
+
+    // Search used by the Ponderer. It runs on the calling ponder thread only, so thinking ahead
+    // never takes shared search threads from the live moves of any game.
+    default int ponderMove(Connect4Game game, AtomicBoolean stop) {
+        return chooseMove(game, stop);
+    }
+
+    // Whether searching the human's likely replies in advance pays off for this strategy
+    default boolean ponders() {
+        return false;
+    }
+
+    // Difficulties a client may ask for with CREATE_BOT_GAME
+    int MIN_DIFFICULTY = 1;
+    int MAX_DIFFICULTY = 4;
+
+    // Strategy for the difficulty sent with CREATE_BOT_GAME: 1 = easy, 2 = hard, 3 = expert,
+    // 4 = Monte Carlo tree search. HeuristicBot is not offered to players; it is a baseline for
+    // the Tournament.
+    static BotStrategy forDifficulty(int difficulty) {
+        switch (difficulty) {
+            case 1:
+                return RandomBot.INSTANCE;
+            case 2:
+                return NegamaxBot.HARD;
+            case 3:
+                return NegamaxBot.EXPERT;
+            case 4:
+                return MctsBot.STRONG;
+            default:
+                throw new IllegalArgumentException("Unknown bot difficulty " + difficulty);
+        }
+    }
+}
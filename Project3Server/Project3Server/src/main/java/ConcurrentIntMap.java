@@ -0,0 +1,255 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+// Thread-safe map from int keys (client and game ids) to values, for the server's registries.
+//
+// Keys are never boxed: the map is split into 16 stripes, each an open-addressing table of int
+// keys and value references with linear probing. Writers lock one stripe; readers don't lock at
+// all in the common case, they probe under an optimistic StampedLock stamp and only fall back to
+// the stripe's read lock if a write raced with them. A lookup is a few array reads and allocates
+// nothing. Removal shifts later entries back instead of leaving tombstones, so probes stay short
+// however many clients come and go.
+//
+// Values must not be null.
+public final class ConcurrentIntMap<V> {
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPE_MASK = (1 << STRIPE_BITS) - 1;
+    private static final int INITIAL_SLOTS = 16;
+
+    // One stripe's table; replaced as a whole when it grows, so a reader sees matching arrays
+    private static final class Table {
+        final int[] keys;
+        final Object[] values; // null marks a free slot
+
+        Table(int slots) {
+            keys = new int[slots];
+            values = new Object[slots];
+        }
+    }
+
+    private static final class Stripe extends StampedLock {
+        volatile Table table = new Table(INITIAL_SLOTS);
+        int size; // guarded by the write lock
+    }
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    public ConcurrentIntMap() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9; // ids are sequential, spread them over the stripes and slots
+        return h ^ (h >>> 16);
+    }
+
+    private static int home(int h, int mask) {
+        return (h >>> STRIPE_BITS) & mask;
+    }
+
+    // Slot holding 'key' in 't', or -1. Bounded by the table size, so a table changing underneath
+    // an optimistic reader can't send it round forever.
+    private static int find(Table t, int key, int h) {
+        int mask = t.keys.length - 1;
+        for (int i = home(h, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            if (t.values[i] == null) {
+                return -1;
+            }
+            if (t.keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int h = hash(key);
+        Stripe stripe = stripes[h & STRIPE_MASK];
+        long stamp = stripe.tryOptimisticRead();
+        Table t = stripe.table;
+        int slot = find(t, key, h);
+        Object value = slot < 0 ? null : t.values[slot];
+        if (!stripe.validate(stamp)) {
+            stamp = stripe.readLock();
+            try {
+                t = stripe.table;
+                slot = find(t, key, h);
+                value = slot < 0 ? null : t.values[slot];
+            } finally {
+                stripe.unlockRead(stamp);
+            }
+        }
+        return (V) value;
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    // Maps 'key' to 'value' and returns the previous value, or null
+    public V put(int key, V value) {
+        return put(key, value, false);
+    }
+
+    // Maps 'key' to 'value' unless it is already mapped; returns the existing value, or null
+    public V putIfAbsent(int key, V value) {
+        return put(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(int key, V value, boolean onlyIfAbsent) {
+        if (value == null) {
+            throw new NullPointerException("ConcurrentIntMap values must not be null");
+        }
+        int h = hash(key);
+        Stripe stripe = stripes[h & STRIPE_MASK];
+        long stamp = stripe.writeLock();
+        try {
+            Table t = stripe.table;
+            int slot = find(t, key, h);
+            if (slot >= 0) {
+                Object previous = t.values[slot];
+                if (!onlyIfAbsent) {
+                    t.values[slot] = value;
+                }
+                return (V) previous;
+            }
+            if ((stripe.size + 1) * 4 > t.keys.length * 3) {
+                t = grow(stripe);
+            }
+            int mask = t.keys.length - 1;
+            int i = home(h, mask);
+            while (t.values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            t.keys[i] = key;
+            t.values[i] = value;
+            stripe.size++;
+            return null;
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    // Rehashes the stripe into a table twice the size; called under the write lock
+    private static Table grow(Stripe stripe) {
+        Table old = stripe.table;
+        Table t = new Table(old.keys.length * 2);
+        int mask = t.keys.length - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            if (old.values[j] != null) {
+                int i = home(hash(old.keys[j]), mask);
+                while (t.values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                t.keys[i] = old.keys[j];
+                t.values[i] = old.values[j];
+            }
+        }
+        stripe.table = t;
+        return t;
+    }
+
+    // Removes 'key' and returns the value it had, or null
+    public V remove(int key) {
+        return removeIf(key, null);
+    }
+
+    // Removes 'key' only while it maps to 'expected' (compared by identity)
+    public boolean remove(int key, V expected) {
+        return expected != null && removeIf(key, expected) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeIf(int key, Object expected) {
+        int h = hash(key);
+        Stripe stripe = stripes[h & STRIPE_MASK];
+        long stamp = stripe.writeLock();
+        try {
+            Table t = stripe.table;
+            int i = find(t, key, h);
+            if (i < 0 || (expected != null && t.values[i] != expected)) {
+                return null;
+            }
+            Object previous = t.values[i];
+            t.values[i] = null;
+            stripe.size--;
+
+            // Shift back any later entry of the probe run that may now sit in the freed slot
+            int mask = t.keys.length - 1;
+            for (int j = (i + 1) & mask; t.values[j] != null; j = (j + 1) & mask) {
+                int home = home(hash(t.keys[j]), mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    t.keys[i] = t.keys[j];
+                    t.values[i] = t.values[j];
+                    t.values[j] = null;
+                    i = j;
+                }
+            }
+            return (V) previous;
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.readLock();
+            size += stripe.size;
+            stripe.unlockRead(stamp);
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Copy of the current values, e.g. for broadcasting without holding any lock while writing
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.readLock();
+            try {
+                for (Object value : stripe.table.values) {
+                    if (value != null) {
+                        values.add((V) value);
+                    }
+                }
+            } finally {
+                stripe.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.readLock();
+            try {
+                Table t = stripe.table;
+                for (int i = 0; i < t.keys.length; i++) {
+                    if (t.values[i] != null) {
+                        sb.append(sb.length() > 1 ? ", " : "").append(t.keys[i]).append('=').append(t.values[i]);
+                    }
+                }
+            } finally {
+                stripe.unlockRead(stamp);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
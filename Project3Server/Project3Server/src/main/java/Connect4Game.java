@@ -1,28 +1,108 @@
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Connect4Game {
     private int player1;
     private int player2;
     private int currentPlayer;
     private int turnDurationSeconds = 30; // default
-    private Timer turnTimer;
+    private volatile TurnTimer.Timeout turnTimer; // pending timeout on the shared wheel, null when stopped
+    private volatile int turnTimerRun;            // bumped whenever the turn clock is stopped
+    private volatile long turnDeadlineMillis;     // when the current turn runs out, 0 when stopped
     private Runnable onTurnTimeout;
     private boolean gameFinished = false;
     private int consecutiveTimeouts = 0;
-    private static final int ROWS = 6;
-    private static final int COLS = 7;
-    private int[][] board = new int[ROWS][COLS];  // 0 = empty, 1 = player 1, 2 = player 2
+
+    // Shape of the board and its shared lookup tables, see BoardGeometry for the bit layout
+    private final BoardGeometry geometry;
+    private final int rows;
+    private final int cols;
+    private final int columnBits;
+
+    private final long[][] discs;       // discs[0] = player 1, discs[1] = player 2, one bit per cell
+    private final long[] mask;          // every occupied cell
+    private final byte[] heights;       // discs in each column
+    private int legalMoves;             // bit c is set while column c has room
     private int winner = 0;
+    private int winningPly = 0;         // move count right after the winning disc, 0 while undecided
+    private int sideToMove = 0;         // index into discs for play(), flipped by switchTurn()
+    private long positionKey;           // Zobrist key of the discs and side to move
+    private long mirrorKey;             // key of the same position flipped left to right
+
+    // Move log, one byte per disc dropped so far, oldest first: the column in the low bits and
+    // PLY_SIDE_BIT set when the disc was player 2's, so skipped turns replay correctly
+    private static final int PLY_COLUMN_MASK = 0x3F;
+    private static final int PLY_SIDE_BIT = 0x40;
+    private final byte[] moves;
+    private int moveCount = 0;
+
+    // Latest published view for readers on other threads, replaced after every move or turn change
+    private final AtomicReference<GameSnapshot> snapshot = new AtomicReference<>();
+
+    // Scratch bitboards for the threat queries, allocated on first use and never copied
+    private long[][] lowRuns;
+    private long[][] highRuns;
+    private long[] shifted;
+    private long[] threatCells;
 
     public Connect4Game() {
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                board[row][col] = 0;  // Initialize the board as empty
-            }
+        this(BoardGeometry.STANDARD);
+    }
+
+    public Connect4Game(BoardGeometry geometry) {
+        this(geometry, true);
+    }
+
+    // For copy() and fromMoveHistory(), which publish once they have filled the game in
+    private Connect4Game(BoardGeometry geometry, boolean publish) {
+        this.geometry = geometry;
+        this.rows = geometry.rows;
+        this.cols = geometry.cols;
+        this.columnBits = geometry.columnBits;
+        this.discs = new long[2][geometry.words];
+        this.mask = new long[geometry.words];
+        this.heights = new byte[cols];
+        this.legalMoves = (1 << cols) - 1;
+        this.moves = new byte[rows * cols];
+        this.positionKey = geometry.emptyKey;
+        this.mirrorKey = geometry.emptyKey;
+        if (publish) {
+            publish();
         }
     }
 
+    // The latest consistent view of this game. Safe to call from any thread.
+    public GameSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Builds a new immutable view and swaps it in. Only the thread that owns the game mutates it,
+    // so a plain set is enough; readers never see a half-made move.
+    private void publish() {
+        GameSnapshot previous = snapshot.get();
+        long version = (previous == null) ? 0 : previous.getVersion() + 1;
+        snapshot.set(new GameSnapshot(version, geometry, Arrays.copyOf(moves, moveCount), getBoardString(),
+                player1, player2, currentPlayer, winner, checkDraw(), gameFinished, positionKey));
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getConnect() {
+        return geometry.connect;
+    }
+
     public void setTurnDuration(int seconds) {
         this.turnDurationSeconds = seconds;
     }
@@ -43,132 +123,390 @@ public class Connect4Game {
         return consecutiveTimeouts;
     }
 
+    // Starts the clock for the player to move: the deadline is stored and a single timeout is
+    // scheduled on the shared turn timer, nothing runs in between
     public void startTurnTimer(Runnable timeoutCallback) {
+        startTurnTimer(timeoutCallback, Runnable::run);
+    }
+
+    // As above, with the callback handed to 'executor' (e.g. the game's mailbox) when the turn runs
+    // out. The stale-turn check runs there too, so a timeout queued behind a move that cancelled
+    // the clock is dropped.
+    public void startTurnTimer(Runnable timeoutCallback, Executor executor) {
         cancelTurnTimer(); // Clear any previous timer
         this.onTurnTimeout = timeoutCallback;
-
-        turnTimer = new Timer();
-
-        final int[] remaining = {turnDurationSeconds};
-
-        // Logging countdown every second
-        turnTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if (remaining[0] <= 0) {
-                    System.out.println("[Timer] Time's up!");
-                    cancel();
-                    if (onTurnTimeout != null) {
-                        onTurnTimeout.run();
-                    }
-                } else {
-                    System.out.println("[Timer] " + remaining[0] + "s remaining...");
-                    remaining[0]--;
-                }
+        int run = turnTimerRun;
+        turnDeadlineMillis = System.currentTimeMillis() + turnDurationSeconds * 1000L;
+        turnTimer = TurnTimer.shared().schedule(() -> executor.execute(() -> {
+            if (run != turnTimerRun) {
+                return; // the turn ended just as the timeout fired
+            }
+            turnTimer = null;
+            turnDeadlineMillis = 0;
+            Runnable callback = onTurnTimeout;
+            if (callback != null) {
+                callback.run();
             }
-        }, 0, 1000);
+        }), turnDurationSeconds, TimeUnit.SECONDS);
     }
 
     public void cancelTurnTimer() {
-        if (turnTimer != null) {
-            turnTimer.cancel();
-            turnTimer.purge();
+        turnTimerRun++;
+        turnDeadlineMillis = 0;
+        TurnTimer.Timeout timeout = turnTimer;
+        if (timeout != null) {
+            timeout.cancel();
             turnTimer = null;
         }
     }
 
+    // Wall-clock time (epoch millis) the current turn runs out, or 0 when no turn clock is running
+    public long getTurnDeadline() {
+        return turnDeadlineMillis;
+    }
+
     public void setPlayers(int p1, int p2) {
+        assignPlayers(p1, p2);
+        publish();
+    }
+
+    // setPlayers() without the snapshot, for games still being filled in
+    private void assignPlayers(int p1, int p2) {
         this.player1 = p1;
         this.player2 = p2;
         this.currentPlayer = p1; // player1 starts
+        if (sideToMove != 0) {
+            positionKey ^= geometry.sideToMoveKey;
+            mirrorKey ^= geometry.sideToMoveKey;
+            sideToMove = 0;
+        }
     }
 
     public boolean makeMove(int col, int playerId) {
-        if (col < 0 || col >= COLS) return false;
-        for (int row = ROWS - 1; row >= 0; row--) {
-            if (board[row][col] == 0) {
-                board[row][col] = (playerId == player1) ? 1 : 2;
-                return true;
-            }
+        if (!isValidMove(col)) return false; // out of range or column full
+        dropDisc(col, (playerId == player1) ? 0 : 1);
+        publish();
+        return true;
+    }
+
+    // Drops a disc for whoever's turn it is and passes the turn, without allocating.
+    // Meant for bot search on a private copy together with undo(); neither publishes a snapshot.
+    public boolean play(int col) {
+        if (!isValidMove(col)) return false;
+        dropDisc(col, sideToMove);
+        passTurn();
+        return true;
+    }
+
+    // Takes back the last disc and hands the turn back, reversing play()
+    public boolean undo() {
+        if (moveCount == 0) return false;
+
+        int ply = moves[--moveCount];
+        int col = ply & PLY_COLUMN_MASK;
+        int side = (ply & PLY_SIDE_BIT) != 0 ? 1 : 0;
+        int bit = col * columnBits + (--heights[col]);
+        long top = 1L << bit; // shift distance wraps within the word
+        legalMoves |= 1 << col;
+        mask[bit >>> 6] ^= top;
+        discs[side][bit >>> 6] ^= top;
+        positionKey ^= geometry.zobrist[side][bit];
+        mirrorKey ^= geometry.mirrorZobrist[side][bit];
+
+        // Forget the result if the winning disc was the one taken back
+        if (winningPly > moveCount) {
+            winner = 0;
+            winningPly = 0;
         }
-        return false; // column full
+        passTurn();
+        return true;
     }
 
-    public boolean checkWinner() {
-        // Check for a winner
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                if (board[row][col] != 0 && checkDirection(row, col)) {
-                    this.winner = board[row][col];
-                    return true;
-                }
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    // The game so far as one byte per ply, at most rows * cols bytes. Feed it back to
+    // fromMoveHistory() to rebuild the game, e.g. for archives, replays or client resync.
+    public byte[] getMoveHistory() {
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    // Rebuilds a standard game from getMoveHistory()
+    public static Connect4Game fromMoveHistory(byte[] history, int p1, int p2) {
+        return fromMoveHistory(history, BoardGeometry.STANDARD, p1, p2);
+    }
+
+    // Rebuilds a game from getMoveHistory(). The turn goes to whoever did not drop the last disc.
+    public static Connect4Game fromMoveHistory(byte[] history, BoardGeometry geometry, int p1, int p2) {
+        Connect4Game game = replay(history, geometry, p1, p2);
+        game.publish();
+        return game;
+    }
+
+    // Same, with the turn given to 'toMove', which differs when a turn timed out; for
+    // GameSnapshot.toGame()
+    static Connect4Game fromMoveHistory(byte[] history, BoardGeometry geometry, int p1, int p2, int toMove) {
+        Connect4Game game = replay(history, geometry, p1, p2);
+        if (game.currentPlayer != toMove) {
+            game.passTurn();
+        }
+        game.publish();
+        return game;
+    }
+
+    // The game after 'history', not published yet
+    private static Connect4Game replay(byte[] history, BoardGeometry geometry, int p1, int p2) {
+        Connect4Game game = new Connect4Game(geometry, false);
+        game.assignPlayers(p1, p2);
+
+        for (byte ply : history) {
+            int col = ply & PLY_COLUMN_MASK;
+            if (!game.isValidMove(col)) {
+                throw new IllegalArgumentException("Illegal move in history: column " + col + " at ply " + game.moveCount);
             }
+            game.dropDisc(col, (ply & PLY_SIDE_BIT) != 0 ? 1 : 0);
+        }
+
+        if (history.length > 0 && ((history[history.length - 1] & PLY_SIDE_BIT) != 0) == (game.sideToMove == 1)) {
+            game.passTurn();
         }
-        return false;
+        return game;
     }
 
-    public int getWinner() {
-        return this.winner;
+    // The position after the first 'ply' moves of this game, for stepping through a replay
+    public Connect4Game getPositionAt(int ply) {
+        if (ply < 0 || ply > moveCount) {
+            throw new IllegalArgumentException("Ply " + ply + " outside 0.." + moveCount);
+        }
+        return fromMoveHistory(Arrays.copyOf(moves, ply), geometry, player1, player2);
     }
 
-    public boolean checkDraw() {
-        for (int col = 0; col < COLS; col++) {
-            if (board[0][col] == 0) {
-                return false;
+    // Index into the bitboards (0 = player 1, 1 = player 2) of whoever plays next
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    // Empty cells where one disc of 'side' would complete a line, whether or not they can be
+    // reached yet. 'out' must hold geometry.getWords() longs.
+    public void getWinningCells(int side, long[] out) {
+        int words = geometry.words;
+        int connect = geometry.connect;
+        long[] own = discs[side];
+        ensureScratch();
+        Arrays.fill(out, 0L);
+        Arrays.fill(lowRuns[0], -1L);
+        Arrays.fill(highRuns[0], -1L);
+
+        for (int step : geometry.lineSteps) {
+            // lowRuns[t] marks cells whose t nearest neighbours below along the line are own discs,
+            // highRuns[t] the same above. Sentinel bits are never set, so runs stop at the edges.
+            for (int t = 1; t < connect; t++) {
+                shiftUp(own, t * step, shifted);
+                for (int w = 0; w < words; w++) lowRuns[t][w] = lowRuns[t - 1][w] & shifted[w];
+                shiftDown(own, t * step, shifted);
+                for (int w = 0; w < words; w++) highRuns[t][w] = highRuns[t - 1][w] & shifted[w];
+            }
+            // A cell wins when the runs on both sides add up to connect - 1 discs
+            for (int below = 0; below < connect; below++) {
+                long[] low = lowRuns[below];
+                long[] high = highRuns[connect - 1 - below];
+                for (int w = 0; w < words; w++) out[w] |= low[w] & high[w];
             }
         }
-        return true;
+        for (int w = 0; w < words; w++) {
+            out[w] &= geometry.boardMask[w] & ~mask[w];
+        }
+    }
+
+    // Cells where 'side' can't be stopped: winning cells stacked on top of each other, plus every
+    // playable winning cell when there are at least two of them
+    public void getDoubleThreats(int side, long[] out) {
+        getWinningCells(side, out);
+        int words = geometry.words;
+        int playableWins = playableColumns(out);
+
+        // Winning cells with another winning cell right on top, and those top cells
+        shiftDown(out, 1, shifted);
+        for (int w = 0; w < words; w++) threatCells[w] = out[w] & shifted[w];
+        shiftUp(threatCells, 1, shifted);
+        for (int w = 0; w < words; w++) out[w] = threatCells[w] | shifted[w];
+
+        // Two winning drops at once can't both be blocked
+        if (Integer.bitCount(playableWins) >= 2) {
+            for (int columns = playableWins; columns != 0; columns &= columns - 1) {
+                int col = Integer.numberOfTrailingZeros(columns);
+                int bit = col * columnBits + heights[col];
+                out[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    // Empty cells directly below a winning cell of the other side: a disc there lets them win on top
+    public void getDoNotPlayBelow(int side, long[] out) {
+        getWinningCells(side ^ 1, threatCells());
+        shiftDown(threatCells, 1, out);
+        for (int w = 0; w < geometry.words; w++) {
+            out[w] &= geometry.boardMask[w] & ~mask[w];
+        }
+    }
+
+    // Columns where 'side' wins by dropping a disc right now, one bit per column
+    public int getWinningColumns(int side) {
+        getWinningCells(side, threatCells());
+        return playableColumns(threatCells);
     }
 
-    private boolean checkDirection(int row, int col) {
-        int player = board[row][col];
+    // Legal columns where a disc of 'side' doesn't hand the other side a winning cell on top
+    public int getSafeColumns(int side) {
+        getWinningCells(side ^ 1, threatCells());
+        int unsafe = 0;
+        for (int col = 0; col < cols; col++) {
+            int above = heights[col] + 1;
+            if (above < rows && isSet(threatCells, col * columnBits + above)) unsafe |= 1 << col;
+        }
+        return legalMoves & ~unsafe;
+    }
+
+    private void ensureScratch() {
+        if (lowRuns == null) {
+            lowRuns = new long[geometry.connect][geometry.words];
+            highRuns = new long[geometry.connect][geometry.words];
+            shifted = new long[geometry.words];
+            threatCells = new long[geometry.words];
+        }
+    }
+
+    private long[] threatCells() {
+        ensureScratch();
+        return threatCells;
+    }
 
-        // Check horizontal
-        if (col + 3 < COLS &&
-                board[row][col] == player &&
-                board[row][col+1] == player &&
-                board[row][col+2] == player &&
-                board[row][col+3] == player) {
-            return true;
+    // Columns whose next free cell is set in 'cells'
+    private int playableColumns(long[] cells) {
+        int columns = 0;
+        for (int col = 0; col < cols; col++) {
+            if (heights[col] < rows && isSet(cells, col * columnBits + heights[col])) columns |= 1 << col;
         }
+        return columns;
+    }
 
-        // Check vertical
-        if (row + 3 < ROWS &&
-                board[row][col] == player &&
-                board[row+1][col] == player &&
-                board[row+2][col] == player &&
-                board[row+3][col] == player) {
-            return true;
+    // dst = src moved 'n' bits towards the high end; src and dst must be different arrays
+    private static void shiftUp(long[] src, int n, long[] dst) {
+        int wordShift = n >>> 6;
+        int bitShift = n & 63;
+        for (int w = dst.length - 1; w >= 0; w--) {
+            int from = w - wordShift;
+            long word = (from >= 0) ? src[from] << bitShift : 0L;
+            if (bitShift != 0 && from - 1 >= 0) word |= src[from - 1] >>> (64 - bitShift);
+            dst[w] = word;
         }
+    }
 
-        // Check diagonal \
-        if (row + 3 < ROWS && col + 3 < COLS &&
-                board[row][col] == player &&
-                board[row+1][col+1] == player &&
-                board[row+2][col+2] == player &&
-                board[row+3][col+3] == player) {
-            return true;
+    // dst = src moved 'n' bits towards the low end; src and dst must be different arrays
+    private static void shiftDown(long[] src, int n, long[] dst) {
+        int wordShift = n >>> 6;
+        int bitShift = n & 63;
+        for (int w = 0; w < dst.length; w++) {
+            int from = w + wordShift;
+            long word = (from < src.length) ? src[from] >>> bitShift : 0L;
+            if (bitShift != 0 && from + 1 < src.length) word |= src[from + 1] << (64 - bitShift);
+            dst[w] = word;
         }
+    }
+
+    // Bit c is set when column c can take another disc
+    public int getLegalMoves() {
+        return legalMoves;
+    }
+
+    public int getColumnHeight(int col) {
+        return heights[col];
+    }
 
-        // Check diagonal /
-        if (row - 3 >= 0 && col + 3 < COLS &&
-                board[row][col] == player &&
-                board[row-1][col+1] == player &&
-                board[row-2][col+2] == player &&
-                board[row-3][col+3] == player) {
-            return true;
+    // 64-bit identity of the position, updated with every disc and turn change
+    public long getPositionKey() {
+        return positionKey;
+    }
+
+    // Same key for a position and its left-right mirror, for tables that fold symmetric positions
+    public long getCanonicalKey() {
+        return Math.min(positionKey, mirrorKey);
+    }
+
+    // True when the canonical key is the mirrored one, so stored columns must be flipped (cols - 1 - col)
+    public boolean isCanonicalMirrored() {
+        return mirrorKey < positionKey;
+    }
+
+    private void dropDisc(int col, int side) {
+        int bit = col * columnBits + (heights[col]++);
+        if (heights[col] == rows) {
+            legalMoves &= ~(1 << col);
+        }
+        discs[side][bit >>> 6] |= 1L << bit;
+        mask[bit >>> 6] |= 1L << bit;
+        positionKey ^= geometry.zobrist[side][bit];
+        mirrorKey ^= geometry.mirrorZobrist[side][bit];
+        moves[moveCount++] = (byte) (side == 0 ? col : col | PLY_SIDE_BIT);
+
+        // Only lines through the new disc can have changed, so settle the result here once
+        if (winner == 0 && completesLine(discs[side], bit)) {
+            winner = side + 1;
+            winningPly = moveCount;
         }
+    }
+
+    // Result is cached by makeMove, so this is safe to call after every move
+    public boolean checkWinner() {
+        return winner != 0;
+    }
+
+    public int getWinner() {
+        return this.winner;
+    }
+
+    public boolean checkDraw() {
+        return legalMoves == 0;
+    }
+
+    // Returns true if the disc at 'bit' is part of a winning line on the given bitboard
+    private boolean completesLine(long[] bits, int bit) {
+        int connect = geometry.connect;
+        return runThrough(bits, bit, columnBits) >= connect      // horizontal
+                || runThrough(bits, bit, 1) >= connect            // vertical
+                || runThrough(bits, bit, columnBits - 1) >= connect  // diagonal \
+                || runThrough(bits, bit, columnBits + 1) >= connect; // diagonal /
+    }
+
+    // Counts the discs in a line through 'bit', stepping 'step' bits at a time both ways.
+    // The empty sentinel bits end the walk at the board edges.
+    private int runThrough(long[] bits, int bit, int step) {
+        int run = 1;
+        for (int b = bit - step; b >= 0 && isSet(bits, b); b -= step) run++;
+        for (int b = bit + step; b < geometry.bits && isSet(bits, b); b += step) run++;
+        return run;
+    }
+
+    private static boolean isSet(long[] bits, int bit) {
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
 
-        return false;
+    // Returns 0 for an empty cell, otherwise 1 or 2. Rows are counted from the top like the board string.
+    private int cellAt(int row, int col) {
+        int bit = col * columnBits + (rows - 1 - row);
+        if (isSet(discs[0], bit)) return 1;
+        if (isSet(discs[1], bit)) return 2;
+        return 0;
     }
 
     public String getBoardString() {
         StringBuilder boardString = new StringBuilder();
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                boardString.append(board[row][col]);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                boardString.append(cellAt(row, col));
             }
-            if (row < ROWS - 1) {
+            if (row < rows - 1) {
                 boardString.append(","); // Separate rows with commas
             }
         }
@@ -176,7 +514,15 @@ public class Connect4Game {
     }
 
     public void switchTurn() {
+        passTurn();
+        publish();
+    }
+
+    private void passTurn() {
         currentPlayer = (currentPlayer == player1) ? player2 : player1;
+        sideToMove ^= 1;
+        positionKey ^= geometry.sideToMoveKey;
+        mirrorKey ^= geometry.sideToMoveKey;
     }
 
     public int getCurrentPlayer() {
@@ -189,6 +535,7 @@ public class Connect4Game {
 
     public void setGameFinished(boolean finished) {
         this.gameFinished = finished;
+        publish();
     }
 
     public boolean isGameFinished() {
@@ -204,26 +551,43 @@ public class Connect4Game {
     }
 
     public Connect4Game copy() {
-        Connect4Game copy = new Connect4Game();
-        copy.board = new int[ROWS][COLS];
-        for (int i = 0; i < ROWS; i++) {
-            System.arraycopy(this.board[i], 0, copy.board[i], 0, COLS);
+        Connect4Game copy = new Connect4Game(geometry, false);
+        for (int w = 0; w < geometry.words; w++) {
+            copy.discs[0][w] = this.discs[0][w];
+            copy.discs[1][w] = this.discs[1][w];
+            copy.mask[w] = this.mask[w];
         }
+        System.arraycopy(this.heights, 0, copy.heights, 0, cols);
+        copy.legalMoves = this.legalMoves;
+        System.arraycopy(this.moves, 0, copy.moves, 0, this.moveCount);
+        copy.moveCount = this.moveCount;
+        copy.sideToMove = this.sideToMove;
+        copy.winningPly = this.winningPly;
+        copy.positionKey = this.positionKey;
+        copy.mirrorKey = this.mirrorKey;
         copy.currentPlayer = this.currentPlayer;
         copy.player1 = this.player1;
         copy.player2 = this.player2;
         copy.gameFinished = this.gameFinished;
         copy.turnDurationSeconds = this.turnDurationSeconds;
         copy.winner = this.winner;
+        copy.publish();
         return copy;
     }
 
     public boolean isValidMove(int column) {
-        if (column < 0 || column >= COLS) return false;
-        return board[0][column] == 0; // If top row is empty, column isn't full
+        if (column < 0 || column >= cols) return false;
+        return (legalMoves & (1 << column)) != 0;
     }
 
+    // Builds a fresh grid from the bitboards, row 0 is the top row
     public int[][] getBoard() {
+        int[][] board = new int[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                board[row][col] = cellAt(row, col);
+            }
+        }
         return board;
     }
-}
\ No newline at end of file
+}
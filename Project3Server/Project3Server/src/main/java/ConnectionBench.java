@@ -0,0 +1,205 @@
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+// Measures what client connections cost the server in the current connection mode
+// (-Dconnect4.connections=platform|virtual, see ConnectionThreads). Starts a server in this JVM
+// on port 5555, then:
+//   density     opens 'idle' connections that only do the stream handshake, and reports the
+//               OS threads, resident memory and heap they add per connection
+//   throughput  runs 'active' clients doing GET_CHAT_RECIPIENTS round trips for 'seconds' on top
+//               of the idle ones, and reports round trips per second
+//
+// The idle clients are non-blocking channels drained by one selector thread, so the bench side
+// adds no thread per connection; its sockets and buffers are still part of the memory figures.
+// Every join is broadcast to everyone, so setting up N connections takes O(N^2) writes.
+//
+// Usage: java -Dconnect4.connections=virtual -cp target/classes ConnectionBench [idle] [active] [seconds]
+public class ConnectionBench {
+    private static final int PORT = 5555;
+
+    private static final CountDownLatch START = new CountDownLatch(1);
+    private static volatile long deadlineNanos;
+    private static volatile long drainedBytes; // written by the drain thread only
+
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int active = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String mode = System.getProperty(ConnectionThreads.PROPERTY, ConnectionThreads.PLATFORM);
+
+        System.out.println("Connections: " + mode + (ConnectionThreads.VIRTUAL.equals(mode)
+                && !ConnectionThreads.virtualThreadsAvailable() ? " (not available, platform threads used)" : "")
+                + ", Java " + System.getProperty("java.version"));
+        Server server = new Server(message -> { });
+        waitForPort();
+
+        long threadsBefore = threads();
+        long rssBefore = residentKilobytes();
+        long heapBefore = usedHeap();
+
+        // Density: idle connections that never send a request
+        Selector selector = Selector.open();
+        for (int i = 0; i < idle; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", PORT));
+            channel.write(ByteBuffer.wrap(streamHeader()));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+        Thread drain = new Thread(() -> discardAll(selector), "bench-drain");
+        drain.setDaemon(true);
+        drain.start();
+        waitForClients(server, idle);
+        waitForQuiet(); // every join is broadcast to everyone, let those finish
+
+        long threads = threads() - threadsBefore;
+        long rss = residentKilobytes() - rssBefore;
+        long heap = usedHeap() - heapBefore;
+        System.out.println(String.format("%d idle connections: +%d OS threads, +%d MB resident (%.1f KB each), +%d MB heap (%.1f KB each)",
+                idle, threads, rss / 1024, rss / (double) Math.max(idle, 1), heap >> 20, heap / 1024.0 / Math.max(idle, 1)));
+
+        // Throughput: request/response round trips from a few busy clients. They connect one at a
+        // time and their join broadcasts settle before the window opens, so the window only
+        // measures round trips.
+        LongAdder roundTrips = new LongAdder();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < active; i++) {
+            CountDownLatch ready = new CountDownLatch(1);
+            Thread client = new Thread(() -> roundTrips(ready, roundTrips), "bench-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+            client.start();
+            ready.await();
+            waitForClients(server, idle + i + 1);
+            waitForQuiet();
+        }
+        deadlineNanos = System.nanoTime() + seconds * 1_000_000_000L;
+        START.countDown();
+        for (Thread client : clients) {
+            client.join();
+        }
+        System.out.println(String.format("%d active clients: %.0f round trips/s",
+                active, roundTrips.sum() / (double) seconds));
+        System.exit(0);
+    }
+
+    // One busy client: handshake, then GET_CHAT_RECIPIENTS round trips until the window closes
+    private static void roundTrips(CountDownLatch ready, LongAdder roundTrips) {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setTcpNoDelay(true);
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+            ready.countDown();
+            START.await();
+            while (System.nanoTime() - deadlineNanos < 0) {
+                out.writeObject(new Message(MessageType.GET_CHAT_RECIPIENTS, null, null));
+                out.reset();
+                out.flush();
+                Message reply;
+                do {
+                    reply = (Message) in.readObject(); // skip broadcasts and the welcome messages
+                } while (reply.getType() != MessageType.CHAT_RECIPIENTS);
+                roundTrips.increment();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void discardAll(Selector selector) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (true) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    buffer.clear();
+                    int read = ((SocketChannel) key.channel()).read(buffer);
+                    if (read < 0) {
+                        key.cancel();
+                    } else {
+                        drainedBytes += read;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Bytes an ObjectOutputStream writes before its first object
+    private static byte[] streamHeader() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ObjectOutputStream(bytes).flush();
+        return bytes.toByteArray();
+    }
+
+    private static void waitForPort() throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try (Socket probe = new Socket("localhost", PORT)) {
+                // Complete the handshake and take the welcome, so the server drops this client cleanly
+                probe.getOutputStream().write(streamHeader());
+                new ObjectInputStream(probe.getInputStream()).readObject();
+                return;
+            } catch (Exception e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Server did not start on port " + PORT);
+    }
+
+    private static void waitForClients(Server server, int expected) throws InterruptedException {
+        while (server.clients.size() < expected) {
+            Thread.sleep(50);
+        }
+    }
+
+    // Waits until the idle connections have received nothing for half a second
+    private static void waitForQuiet() throws InterruptedException {
+        long seen;
+        do {
+            seen = drainedBytes;
+            Thread.sleep(500);
+        } while (drainedBytes != seen);
+    }
+
+    private static long threads() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // VmRSS from /proc, or 0 where there is no /proc
+    private static long residentKilobytes() {
+        Path status = Paths.get("/proc/self/status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (Exception e) {
+            // not on Linux
+        }
+        return 0;
+    }
+}
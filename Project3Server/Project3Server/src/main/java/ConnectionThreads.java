@@ -0,0 +1,58 @@
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads that run the server's client connections, chosen with -Dconnect4.connections:
+//   platform  one OS thread per connection, each with its own stack (the default)
+//   virtual   one virtual thread per connection (Java 21+). A handler blocked on its socket parks
+//             and gives its carrier thread back, so an idle connection costs heap for its stack
+//             frames instead of a whole thread stack, and the OS thread count stays at the number
+//             of cores.
+//
+// The handlers keep their blocking reads and writes either way, and hold no monitor while writing
+// to a socket, which on Java 21 would pin the virtual thread to its carrier. ConnectionBench
+// compares the two modes. Virtual threads are created through reflection so the server still
+// builds for Java 8; on an older JVM "virtual" falls back to platform threads with a warning.
+public final class ConnectionThreads {
+    public static final String PROPERTY = "connect4.connections";
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private ConnectionThreads() {
+    }
+
+    // Factory for the mode named by -Dconnect4.connections
+    public static ThreadFactory fromProperty() {
+        return create(System.getProperty(PROPERTY, PLATFORM));
+    }
+
+    public static ThreadFactory create(String mode) {
+        if (VIRTUAL.equals(mode)) {
+            ThreadFactory factory = virtualThreads("client-");
+            if (factory != null) {
+                return factory;
+            }
+            System.out.println("Virtual threads need Java 21 or later, running connections on platform threads");
+        } else if (!PLATFORM.equals(mode)) {
+            throw new IllegalArgumentException("Unknown connection mode " + mode + ", expected " + PLATFORM + " or " + VIRTUAL);
+        }
+        AtomicInteger created = new AtomicInteger();
+        return runnable -> new Thread(runnable, "client-" + created.incrementAndGet());
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return virtualThreads("probe-") != null;
+    }
+
+    // Thread.ofVirtual().name(prefix, 1).factory(), or null when the JVM has no virtual threads
+    private static ThreadFactory virtualThreads(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual")
+                    .getMethod("name", String.class, long.class)
+                    .invoke(builder, prefix, 1L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Serial mailbox for one game. Everything that changes the game (moves, turn timeouts, bot
+// replies, rematch and return-to-lobby requests) is posted here from whichever thread produced
+// it, and the events run one at a time, in the order they were posted, on a shared pool. The game
+// therefore needs no locks, while different games still run in parallel on the pool's threads.
+//
+// A mailbox holds on to a pool thread for at most BATCH events before handing it back, so one
+// busy game can't starve the others.
+public final class GameMailbox implements Executor {
+    private static final int BATCH = 64;
+
+    // An event may throw; the exception is reported and the next event still runs
+    public interface Event {
+        void run() throws Exception;
+    }
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor pool;
+
+    public GameMailbox(Executor pool) {
+        this.pool = pool;
+    }
+
+    public void post(Event event) {
+        events.add(event);
+        if (scheduled.compareAndSet(false, true)) {
+            pool.execute(this::drain);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        post(task::run);
+    }
+
+    private void drain() {
+        for (int i = 0; i < BATCH; i++) {
+            Event event = events.poll();
+            if (event == null) {
+                break;
+            }
+            try {
+                event.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        scheduled.set(false);
+        // An event posted after the last poll but before the flag was cleared would be stranded
+        if (!events.isEmpty() && scheduled.compareAndSet(false, true)) {
+            pool.execute(this::drain);
+        }
+    }
+}
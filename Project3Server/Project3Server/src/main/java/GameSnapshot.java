@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+// Immutable view of a Connect4Game, published after every move or turn change. Readers such as
+// broadcasts, bots or spectators take the latest one from Connect4Game.getSnapshot() and see a
+// consistent board without locking the live game.
+public final class GameSnapshot {
+    private final long version;
+    private final BoardGeometry geometry;
+    private final byte[] moveHistory;
+    private final String boardString;
+    private final int player1;
+    private final int player2;
+    private final int currentPlayer;
+    private final int winner;
+    private final boolean draw;
+    private final boolean gameFinished;
+    private final long positionKey;
+
+    GameSnapshot(long version, BoardGeometry geometry, byte[] moveHistory, String boardString,
+                 int player1, int player2, int currentPlayer, int winner, boolean draw,
+                 boolean gameFinished, long positionKey) {
+        this.version = version;
+        this.geometry = geometry;
+        this.moveHistory = moveHistory;
+        this.boardString = boardString;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.currentPlayer = currentPlayer;
+        this.winner = winner;
+        this.draw = draw;
+        this.gameFinished = gameFinished;
+        this.positionKey = positionKey;
+    }
+
+    // Goes up by one with every published change, so readers can skip snapshots they've already seen
+    public long getVersion() {
+        return version;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public String getBoardString() {
+        return boardString;
+    }
+
+    public byte[] getMoveHistory() {
+        return Arrays.copyOf(moveHistory, moveHistory.length);
+    }
+
+    public int getMoveCount() {
+        return moveHistory.length;
+    }
+
+    public int getPlayer1() {
+        return player1;
+    }
+
+    public int getPlayer2() {
+        return player2;
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isDraw() {
+        return draw;
+    }
+
+    public boolean isGameFinished() {
+        return gameFinished;
+    }
+
+    public long getPositionKey() {
+        return positionKey;
+    }
+
+    // Rebuilds a private game at this position, e.g. for a bot to search without touching the live game
+    public Connect4Game toGame() {
+        return Connect4Game.fromMoveHistory(moveHistory, geometry, player1, player2, currentPlayer);
+    }
+}
@@ -0,0 +1,36 @@
+// One-ply bot: win if possible, otherwise block, otherwise the most central safe column
+public class HeuristicBot implements BotStrategy {
+    public static final HeuristicBot INSTANCE = new HeuristicBot();
+
+    @Override
+    public int chooseMove(Connect4Game game) {
+        // Simple heuristic-based AI, answered straight from the threat masks
+        int bot = game.getSideToMove();
+        int[] columnPriority = game.getGeometry().getCenterFirstColumns(); // Center columns first
+
+        // First check if we can win immediately, then if the opponent could and block it
+        int wins = game.getWinningColumns(bot);
+        if (wins == 0) {
+            wins = game.getWinningColumns(bot ^ 1);
+        }
+        if (wins != 0) {
+            return Integer.numberOfTrailingZeros(wins);
+        }
+
+        // Otherwise make a strategic move (prefer center columns) that doesn't set up the opponent
+        int safe = game.getSafeColumns(bot);
+        for (int col : columnPriority) {
+            if ((safe & (1 << col)) != 0) {
+                return col;
+            }
+        }
+        for (int col : columnPriority) {
+            if (game.isValidMove(col)) {
+                return col;
+            }
+        }
+
+        // Fallback to random if all else fails
+        return RandomBot.INSTANCE.chooseMove(game);
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Monte Carlo tree search bot (UCT). Each playout walks the tree from the root with play/undo,
+// adds one new node, finishes the game with random moves and scores the result back up the path.
+// The column with the most visits is played. Strength grows smoothly with the playout budget.
+//
+// Like NegamaxBot, the search also stops at its time cap, or a quarter of the game's turn clock
+// when that is shorter, so a slow or busy machine answers in time with fewer playouts.
+//
+// Tree nodes live in parallel primitive arrays (an arena) kept per thread and reused from move to
+// move, and playouts run on the engine itself, so a move allocates nothing once the arena is big
+// enough. Like the other bots, an immediate win or a forced block is played without searching.
+public class MctsBot implements BotStrategy {
+    public static final MctsBot STRONG = new MctsBot(50_000, 1000);
+
+    // Exploration constant, sqrt(2) for results scored in [0, 1]
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    private static final ThreadLocal<Arena> ARENAS = ThreadLocal.withInitial(Arena::new);
+
+    private final int playouts;
+    private final long timeCapMillis;
+
+    public MctsBot(int playouts, long timeCapMillis) {
+        if (playouts < 1) {
+            throw new IllegalArgumentException("MCTS needs at least one playout");
+        }
+        this.playouts = playouts;
+        this.timeCapMillis = timeCapMillis;
+    }
+
+    public int getPlayouts() {
+        return playouts;
+    }
+
+    // Time the bot gives itself for a move in this game
+    public long thinkingMillis(Connect4Game game) {
+        long clockMillis = game.getTurnDuration() * 1000L / 4;
+        return clockMillis > 0 ? Math.min(timeCapMillis, clockMillis) : timeCapMillis;
+    }
+
+    @Override
+    public int chooseMove(Connect4Game game) {
+        return chooseMove(game, null);
+    }
+
+    @Override
+    public int chooseMove(Connect4Game game, AtomicBoolean stop) {
+        int legal = game.getLegalMoves();
+        if (legal == 0) {
+            return -1;
+        }
+        int side = game.getSideToMove();
+        int wins = game.getWinningColumns(side);
+        if (wins == 0) {
+            wins = game.getWinningColumns(side ^ 1);
+        }
+        if (wins != 0) {
+            return Integer.numberOfTrailingZeros(wins);
+        }
+        if (Integer.bitCount(legal) == 1) {
+            return Integer.numberOfTrailingZeros(legal);
+        }
+
+        Arena arena = ARENAS.get();
+        arena.reset(playouts + 1, game.getRows() * game.getCols() + 1);
+        arena.newNode(-1, legal, Arena.OPEN);
+        long deadline = System.nanoTime() + thinkingMillis(game) * 1_000_000L;
+        for (int i = 0; i < playouts; i++) {
+            if ((i & 255) == 0 && (System.nanoTime() - deadline > 0 || stop != null && stop.get())) {
+                break;
+            }
+            arena.iterate(game);
+        }
+        int col = arena.mostVisitedMove();
+        return col != -1 ? col : HeuristicBot.INSTANCE.chooseMove(game); // stopped before the first playout
+    }
+
+    // The search tree, one array slot per node. Children of a node form a linked list through
+    // firstChild / nextSibling. Points are counted in halves (win 2, draw 1, loss 0) for the side
+    // that made the move leading into the node.
+    static final class Arena {
+        private static final byte OPEN = 0;
+        private static final byte WON = 1;   // the move into this node won the game
+        private static final byte DRAWN = 2; // the move into this node filled the board
+
+        int[] firstChild = new int[0];
+        int[] nextSibling = new int[0];
+        int[] visits = new int[0];
+        int[] halfPoints = new int[0];
+        int[] untried = new int[0]; // legal columns not expanded yet
+        byte[] move = new byte[0];
+        byte[] state = new byte[0];
+        int[] path = new int[0];
+        int size;
+
+        void reset(int nodes, int depth) {
+            if (firstChild.length < nodes) {
+                firstChild = new int[nodes];
+                nextSibling = new int[nodes];
+                visits = new int[nodes];
+                halfPoints = new int[nodes];
+                untried = new int[nodes];
+                move = new byte[nodes];
+                state = new byte[nodes];
+            }
+            if (path.length < depth) {
+                path = new int[depth];
+            }
+            size = 0;
+        }
+
+        int newNode(int col, int legal, byte nodeState) {
+            int node = size++;
+            firstChild[node] = -1;
+            nextSibling[node] = -1;
+            visits[node] = 0;
+            halfPoints[node] = 0;
+            untried[node] = nodeState == OPEN ? legal : 0;
+            move[node] = (byte) col;
+            state[node] = nodeState;
+            return node;
+        }
+
+        // One playout: select, expand one node, simulate, back up. Leaves 'game' as it found it.
+        void iterate(Connect4Game game) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int rootSide = game.getSideToMove();
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+
+            while (state[node] == OPEN) {
+                if (untried[node] != 0) {
+                    if (size == firstChild.length) {
+                        break; // arena full, simulate from here
+                    }
+                    int col = randomBit(untried[node], random);
+                    untried[node] &= ~(1 << col);
+                    game.play(col);
+                    byte childState = game.checkWinner() ? WON : game.getLegalMoves() == 0 ? DRAWN : OPEN;
+                    int child = newNode(col, game.getLegalMoves(), childState);
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                    node = child;
+                    path[++depth] = node;
+                    break;
+                }
+                node = selectChild(node);
+                game.play(move[node]);
+                path[++depth] = node;
+            }
+
+            // Winner as a side index, or -1 for a draw
+            int winner;
+            if (state[node] == WON) {
+                winner = game.getSideToMove() ^ 1;
+            } else if (state[node] == DRAWN) {
+                winner = -1;
+            } else {
+                winner = playout(game, random);
+            }
+
+            // Node at odd depth was entered by the side to move at the root
+            for (int d = depth; d >= 0; d--) {
+                int n = path[d];
+                visits[n]++;
+                int mover = (d & 1) == 1 ? rootSide : rootSide ^ 1;
+                halfPoints[n] += winner == -1 ? 1 : winner == mover ? 2 : 0;
+            }
+            for (int d = 0; d < depth; d++) {
+                game.undo();
+            }
+        }
+
+        // Random moves to the end of the game; returns the winner's side or -1 for a draw
+        private static int playout(Connect4Game game, ThreadLocalRandom random) {
+            int plies = 0;
+            int winner = -1;
+            for (int legal = game.getLegalMoves(); legal != 0; legal = game.getLegalMoves()) {
+                int mover = game.getSideToMove();
+                game.play(randomBit(legal, random));
+                plies++;
+                if (game.checkWinner()) {
+                    winner = mover;
+                    break;
+                }
+            }
+            for (int i = 0; i < plies; i++) {
+                game.undo();
+            }
+            return winner;
+        }
+
+        private int selectChild(int node) {
+            double logVisits = Math.log(visits[node]);
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                double value = halfPoints[child] / (2.0 * visits[child])
+                        + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        int mostVisitedMove() {
+            int best = -1;
+            for (int child = firstChild[0]; child != -1; child = nextSibling[child]) {
+                if (best == -1 || visits[child] > visits[best]) {
+                    best = child;
+                }
+            }
+            return best != -1 ? move[best] : -1;
+        }
+
+        private static int randomBit(int bits, ThreadLocalRandom random) {
+            for (int skip = random.nextInt(Integer.bitCount(bits)); skip > 0; skip--) {
+                bits &= bits - 1;
+            }
+            return Integer.numberOfTrailingZeros(bits);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Searching bot: negamax with alpha-beta pruning over play/undo on the private copy, deepened one
+// ply at a time until the move's time or node budget runs out. Moves are tried middle column
+// first (the previous iteration's best move before that), forced replies (win now, block now)
+// are taken without searching, and columns that hand the opponent a win on top are never
+// considered. Results go into a transposition table shared by all searches, so positions
+// reached by different move orders, in later turns or in other games are not searched twice.
+//
+// The expert answers opening positions covered by the shared OpeningBook from it without
+// searching. Other levels always search, so the book doesn't lift them to the expert's openings.
+//
+// The time per move is the difficulty's cap, or a quarter of the game's turn clock when that is
+// shorter, so the bot answers in predictable time however busy the board or the server is.
+//
+// With more than one thread the search runs Lazy SMP style: helper searches on the shared
+// ForkJoinPool work through the same position alongside the main search, feeding it through
+// the transposition table, and are stopped as soon as the main search returns. More threads
+// per move give stronger moves in the same time at the cost of total throughput; the expert's
+// count comes from -Dconnect4.searchThreads (default up to 4). Pondering always searches on one
+// thread, so it never competes with live moves for the helper pool.
+public class NegamaxBot implements BotStrategy {
+    public static final NegamaxBot HARD = new NegamaxBot(8, 200_000, 250);
+    public static final NegamaxBot EXPERT = new NegamaxBot(BoardGeometry.MAX_ROWS * BoardGeometry.MAX_COLS, 20_000_000, 1500,
+            Integer.getInteger("connect4.searchThreads", Math.min(4, Runtime.getRuntime().availableProcessors())), null, true);
+
+    // Scores above WIN - plies are forced wins; winning sooner scores higher
+    static final int WIN = 100_000;
+
+    // A score this close to WIN is a forced result, deeper iterations can't change it
+    static final int DECIDED = WIN - BoardGeometry.MAX_ROWS * BoardGeometry.MAX_COLS - 1;
+
+    private final int maxDepth;
+    private final long nodeBudget;
+    private final long timeCapMillis;
+    private final int threads;
+    private final TranspositionTable table; // null = TranspositionTable.shared()
+    private final boolean openingBook; // answer from OpeningBook.shared() when it covers the position
+
+    public NegamaxBot(int maxDepth, long nodeBudget, long timeCapMillis) {
+        this(maxDepth, nodeBudget, timeCapMillis, 1, null);
+    }
+
+    public NegamaxBot(int maxDepth, long nodeBudget, long timeCapMillis, TranspositionTable table) {
+        this(maxDepth, nodeBudget, timeCapMillis, 1, table);
+    }
+
+    public NegamaxBot(int maxDepth, long nodeBudget, long timeCapMillis, int threads, TranspositionTable table) {
+        this(maxDepth, nodeBudget, timeCapMillis, threads, table, false);
+    }
+
+    public NegamaxBot(int maxDepth, long nodeBudget, long timeCapMillis, int threads, TranspositionTable table,
+            boolean openingBook) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Search depth must be at least 1");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Search needs at least 1 thread");
+        }
+        this.maxDepth = maxDepth;
+        this.nodeBudget = nodeBudget;
+        this.timeCapMillis = timeCapMillis;
+        this.threads = threads;
+        this.table = table;
+        this.openingBook = openingBook;
+    }
+
+    // Pool for helper searches, shared by every bot and sized to the machine
+    private static final class HelperPool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    public long getTimeCapMillis() {
+        return timeCapMillis;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean usesOpeningBook() {
+        return openingBook;
+    }
+
+    // Time this bot may think in 'game': the cap, or a quarter of the turn clock if that is shorter
+    public long thinkingMillis(Connect4Game game) {
+        long clockMillis = game.getTurnDuration() * 1000L / 4;
+        return clockMillis > 0 ? Math.min(timeCapMillis, clockMillis) : timeCapMillis;
+    }
+
+    @Override
+    public int chooseMove(Connect4Game game) {
+        return chooseMove(game, null);
+    }
+
+    @Override
+    public boolean ponders() {
+        return true;
+    }
+
+    @Override
+    public int chooseMove(Connect4Game game, AtomicBoolean cancel) {
+        return chooseMove(game, cancel, threads);
+    }
+
+    // Pondering searches with the main search alone, no helpers on the shared pool
+    @Override
+    public int ponderMove(Connect4Game game, AtomicBoolean cancel) {
+        return chooseMove(game, cancel, 1);
+    }
+
+    private int chooseMove(Connect4Game game, AtomicBoolean cancel, int threads) {
+        // Early positions come straight from the opening book when this bot uses one and it is loaded
+        OpeningBook book = openingBook ? OpeningBook.shared() : null;
+        if (book != null) {
+            int col = book.lookup(game);
+            if (col >= 0) {
+                return col;
+            }
+        }
+
+        TranspositionTable tt = table != null ? table : TranspositionTable.shared();
+        long search = tt.newSearch();
+        try {
+            return search(game, cancel, threads, tt);
+        } finally {
+            tt.endSearch(search);
+        }
+    }
+
+    private int search(Connect4Game game, AtomicBoolean cancel, int threads, TranspositionTable tt) {
+        long deadline = System.nanoTime() + thinkingMillis(game) * 1_000_000L;
+        if (threads == 1) {
+            return new Search(game, nodeBudget, deadline, tt, cancel).bestMove(maxDepth);
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        List<ForkJoinTask<Integer>> helpers = new ArrayList<>();
+        for (int helper = 1; helper < threads; helper++) {
+            Search search = new Search(game.copy(), nodeBudget, deadline, tt, stop);
+            search.varyRoot(helper);
+            helpers.add(HelperPool.INSTANCE.submit(() -> search.bestMove(maxDepth)));
+        }
+        try {
+            return new Search(game, nodeBudget, deadline, tt, cancel).bestMove(maxDepth);
+        } finally {
+            // Helpers that haven't started are dropped, running ones notice within 1024 nodes
+            stop.set(true);
+            for (ForkJoinTask<Integer> helper : helpers) {
+                helper.cancel(false);
+            }
+        }
+    }
+
+    // Per-move search state, so the strategy itself can be shared between threads
+    static final class Search {
+        private final Connect4Game game;
+        private final BoardGeometry geometry;
+        private final int[] order;
+        private int[] rootOrder;
+        private int firstDepth = 1;
+        private final long[] ownCells;
+        private final long[] otherCells;
+        private final long nodeBudget;
+        private final long deadline;
+        private final TranspositionTable table;
+        private final AtomicBoolean stop; // ends the search early when set, may be null
+        private long nodes;
+        private boolean aborted;
+        private int completedDepth;
+        private int bestScore = Integer.MIN_VALUE;
+
+        Search(Connect4Game game, long nodeBudget, long deadline, TranspositionTable table, AtomicBoolean stop) {
+            this.game = game;
+            this.geometry = game.getGeometry();
+            this.order = geometry.getCenterFirstColumns();
+            this.rootOrder = order;
+            this.ownCells = new long[geometry.getWords()];
+            this.otherCells = new long[geometry.getWords()];
+            this.nodeBudget = nodeBudget;
+            this.deadline = deadline;
+            this.table = table;
+            this.stop = stop;
+        }
+
+        // Makes this a helper: odd helpers start one ply deeper, and each tries the root columns
+        // in a rotated order, so helpers explore different parts of the tree than the main search
+        void varyRoot(int helper) {
+            firstDepth = 1 + helper % 2;
+            rootOrder = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                rootOrder[i] = order[(i + helper) % order.length];
+            }
+        }
+
+        int bestMove(int maxDepth) {
+            int legal = game.getLegalMoves();
+            if (legal == 0) {
+                return -1;
+            }
+            int side = game.getSideToMove();
+
+            // Win now, or block the opponent's win; neither needs a search
+            game.getWinningCells(side, ownCells);
+            int wins = playable(ownCells);
+            if (wins != 0) {
+                return Integer.numberOfTrailingZeros(wins);
+            }
+            game.getWinningCells(side ^ 1, otherCells);
+            int threats = playable(otherCells);
+            if (threats != 0) {
+                return Integer.numberOfTrailingZeros(threats);
+            }
+
+            int candidates = legal & ~belowWins(otherCells);
+            if (candidates == 0) {
+                candidates = legal; // every column loses, pick the slowest loss
+            }
+            if (Integer.bitCount(candidates) == 1) {
+                return Integer.numberOfTrailingZeros(candidates);
+            }
+
+            // Deepen until time or nodes run out. The previous best move is searched first, so a
+            // move that beats it in an unfinished iteration is still a real improvement.
+            int bestCol = -1;
+            int depthLimit = Math.min(maxDepth, geometry.getRows() * geometry.getCols() - game.getMoveCount());
+            for (int depth = Math.min(firstDepth, depthLimit); depth <= depthLimit && !aborted; depth++) {
+                int iterationCol = -1;
+                int alpha = -WIN;
+                int hashMove = bestCol != -1 ? bestCol : hashMove(table.probe(game));
+                for (int i = -1; i < rootOrder.length; i++) {
+                    int col = nextColumn(rootOrder, i, hashMove, candidates);
+                    if (col < 0) {
+                        continue;
+                    }
+                    game.play(col);
+                    int score = -negamax(depth - 1, -WIN, -alpha);
+                    game.undo();
+                    if (aborted) {
+                        break; // this column wasn't searched to the end
+                    }
+                    if (iterationCol == -1 || score > alpha) {
+                        alpha = score;
+                        iterationCol = col;
+                    }
+                }
+                if (iterationCol != -1) {
+                    bestCol = iterationCol;
+                    bestScore = alpha;
+                }
+                if (!aborted) {
+                    completedDepth = depth;
+                    if (Math.abs(alpha) >= DECIDED) {
+                        break; // forced win or loss found, no need to look deeper
+                    }
+                }
+            }
+
+            if (bestCol == -1) {
+                // Out of budget before the first column finished: take the most central candidate
+                for (int col : order) {
+                    if ((candidates & (1 << col)) != 0) {
+                        return col;
+                    }
+                }
+            }
+            return bestCol;
+        }
+
+        private boolean stopped() {
+            return stop != null && stop.get();
+        }
+
+        // Scores every column for the side to move with a full window, deepening until the budget
+        // runs out, for hints and analysis. Full columns get Integer.MIN_VALUE; the other scores
+        // come from the deepest iteration that finished for every column.
+        void scoreColumns(int maxDepth, int[] scores) {
+            Arrays.fill(scores, Integer.MIN_VALUE);
+            int legal = game.getLegalMoves();
+            int[] iteration = new int[scores.length];
+            int depthLimit = Math.min(maxDepth, geometry.getRows() * geometry.getCols() - game.getMoveCount());
+            for (int depth = 1; depth <= depthLimit; depth++) {
+                boolean decided = true;
+                for (int col : order) {
+                    if ((legal & (1 << col)) == 0) {
+                        continue;
+                    }
+                    game.play(col);
+                    int score = game.checkWinner() ? WIN - game.getMoveCount() : -negamax(depth - 1, -WIN, WIN);
+                    game.undo();
+                    if (aborted) {
+                        return;
+                    }
+                    iteration[col] = score;
+                    decided &= Math.abs(score) >= DECIDED;
+                }
+                for (int col : order) {
+                    if ((legal & (1 << col)) != 0) {
+                        scores[col] = iteration[col];
+                    }
+                }
+                completedDepth = depth;
+                if (decided) {
+                    return; // every column is already a proven win or loss
+                }
+            }
+        }
+
+        // Deepest iteration that finished before the budget ran out
+        int getCompletedDepth() {
+            return completedDepth;
+        }
+
+        // Score of the chosen move for the side to move, or Integer.MIN_VALUE when the move was
+        // forced (or the budget ran out) and nothing was searched
+        int getBestScore() {
+            return bestScore;
+        }
+
+        // Score of the position for the side to move. The previous move never won: wins are
+        // always taken one ply earlier through the winning-cell check.
+        int negamax(int depth, int alpha, int beta) {
+            // The clock is read every 1024 nodes, often enough to stop within a fraction of a millisecond
+            if (++nodes > nodeBudget || ((nodes & 1023) == 0 && (System.nanoTime() - deadline > 0 || stopped()))) {
+                aborted = true;
+            }
+            if (aborted) {
+                return 0;
+            }
+
+            int legal = game.getLegalMoves();
+            if (legal == 0) {
+                return 0; // draw
+            }
+
+            // A stored result searched at least this deep may settle the node or narrow the window
+            long entry = table.probe(game);
+            int hashMove = hashMove(entry);
+            if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return stored;
+                } else if (bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, stored);
+                } else {
+                    beta = Math.min(beta, stored);
+                }
+                if (alpha >= beta) {
+                    return stored;
+                }
+            }
+
+            int side = game.getSideToMove();
+            int ply = game.getMoveCount();
+
+            game.getWinningCells(side, ownCells);
+            if (playable(ownCells) != 0) {
+                return WIN - (ply + 1);
+            }
+
+            game.getWinningCells(side ^ 1, otherCells);
+            int threats = playable(otherCells);
+            int moves;
+            if (threats != 0) {
+                if ((threats & (threats - 1)) != 0) {
+                    return -(WIN - (ply + 2)); // two winning drops, only one can be blocked
+                }
+                moves = threats;
+            } else {
+                moves = legal & ~belowWins(otherCells);
+                if (moves == 0) {
+                    return -(WIN - (ply + 2)); // every column lets them win on top
+                }
+            }
+
+            if (depth == 0) {
+                return evaluate();
+            }
+
+            // Nothing can score better than winning on our next turn
+            int best = WIN - (ply + 3);
+            if (beta > best) {
+                beta = best;
+                if (alpha >= beta) {
+                    return beta;
+                }
+            }
+
+            int alphaBefore = alpha;
+            int bestScore = -WIN;
+            int bestCol = -1;
+            for (int i = -1; i < order.length; i++) {
+                int col = nextColumn(order, i, hashMove, moves);
+                if (col < 0) {
+                    continue;
+                }
+                game.play(col);
+                int score = -negamax(depth - 1, -beta, -alpha);
+                game.undo();
+                if (aborted) {
+                    return 0; // unfinished, must not reach the table
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestCol = col;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+
+            int bound = bestScore <= alphaBefore ? TranspositionTable.UPPER
+                    : bestScore >= beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            table.store(game, depth, bestScore, bound, bestCol);
+            return bestScore;
+        }
+
+        // Move ordering: the stored best move at i = -1, then the columns in the given order
+        private static int nextColumn(int[] columns, int i, int hashMove, int moves) {
+            int col = i < 0 ? hashMove : columns[i];
+            if (col < 0 || (moves & (1 << col)) == 0 || (i >= 0 && col == hashMove)) {
+                return -1;
+            }
+            return col;
+        }
+
+        private int hashMove(long entry) {
+            return entry != 0 ? TranspositionTable.bestMove(entry, game) : -1;
+        }
+
+        // Leaf score: open winning cells for the side to move minus the opponent's. Relies on
+        // ownCells and otherCells still holding this position's cells.
+        private int evaluate() {
+            int score = 0;
+            for (int w = 0; w < ownCells.length; w++) {
+                score += Long.bitCount(ownCells[w]) - Long.bitCount(otherCells[w]);
+            }
+            return score;
+        }
+
+        // Columns whose next free cell is set in 'cells'
+        private int playable(long[] cells) {
+            int columns = 0;
+            for (int col = 0; col < geometry.getCols(); col++) {
+                int height = game.getColumnHeight(col);
+                if (height < geometry.getRows() && isSet(cells, geometry.bitIndex(height, col))) {
+                    columns |= 1 << col;
+                }
+            }
+            return columns;
+        }
+
+        // Columns where our disc would sit right below one of the opponent's winning cells
+        private int belowWins(long[] cells) {
+            int columns = 0;
+            for (int col = 0; col < geometry.getCols(); col++) {
+                int above = game.getColumnHeight(col) + 1;
+                if (above < geometry.getRows() && isSet(cells, geometry.bitIndex(above, col))) {
+                    columns |= 1 << col;
+                }
+            }
+            return columns;
+        }
+
+        private static boolean isSet(long[] cells, int bit) {
+            return (cells[bit >>> 6] & (1L << bit)) != 0;
+        }
+    }
+}
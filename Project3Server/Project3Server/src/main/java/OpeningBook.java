@@ -0,0 +1,230 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Precomputed best columns for the first plies of a game, so the bots answer opening moves
+// without searching. The book is built offline by main() and memory-mapped read-only at server
+// startup: lookups binary-search the mapped file and nothing is copied onto the heap.
+//
+// File layout, big-endian:
+//   header (32 bytes): magic, version, rows, cols, connect, max plies, entry count, reserved
+//   entries (16 bytes each, sorted by key): canonical position key (long), score for the side
+//   to move (int), best column in canonical orientation (byte), search depth (byte), 2 unused
+//
+// Usage: java -cp target/classes OpeningBook [plies] [depth] [nodes] [file] [rows cols connect]
+public final class OpeningBook {
+    public static final String DEFAULT_FILE = "opening-book.bin";
+
+    private static final int MAGIC = 0x43344F42; // "C4OB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 16;
+    private static final String FILE_PROPERTY = "connect4.openingBook";
+
+    private static volatile OpeningBook shared;
+    private static volatile boolean sharedLoaded;
+
+    private final ByteBuffer entries; // read with absolute gets only, so lookups may run concurrently
+    private final BoardGeometry geometry;
+    private final int maxPlies;
+    private final int count;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        geometry = BoardGeometry.of(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16));
+        maxPlies = buffer.getInt(20);
+        count = buffer.getInt(24);
+        if (buffer.capacity() != HEADER_BYTES + (long) count * ENTRY_BYTES) {
+            throw new IOException("Opening book is truncated");
+        }
+        entries = buffer;
+    }
+
+    // Maps the book file read-only; the mapping stays valid after the channel is closed
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(buffer);
+        }
+    }
+
+    // Book used by the server's bots, mapped from -Dconnect4.openingBook (default opening-book.bin
+    // in the working directory). Null when there is no usable book; the bots then just search.
+    public static OpeningBook shared() {
+        if (!sharedLoaded) {
+            synchronized (OpeningBook.class) {
+                if (!sharedLoaded) {
+                    Path file = Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+                    if (Files.isReadable(file)) {
+                        try {
+                            shared = open(file);
+                            System.out.println("Opening book: " + shared.size() + " positions from " + file);
+                        } catch (IOException | IllegalArgumentException e) {
+                            System.out.println("Opening book " + file + " not loaded: " + e.getMessage());
+                        }
+                    }
+                    sharedLoaded = true;
+                }
+            }
+        }
+        return shared;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Book column for the side to move in 'game', or -1 if the position isn't in the book
+    public int lookup(Connect4Game game) {
+        int index = indexOf(game);
+        if (index < 0) {
+            return -1;
+        }
+        int col = entries.get(HEADER_BYTES + index * ENTRY_BYTES + 12);
+        if (game.isCanonicalMirrored()) {
+            col = geometry.getCols() - 1 - col;
+        }
+        return game.isValidMove(col) ? col : -1;
+    }
+
+    // Book score for the side to move (see NegamaxBot.WIN), or Integer.MIN_VALUE if not in the book
+    public int lookupScore(Connect4Game game) {
+        int index = indexOf(game);
+        return index < 0 ? Integer.MIN_VALUE : entries.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+    }
+
+    private int indexOf(Connect4Game game) {
+        if (game.getGeometry() != geometry || game.getMoveCount() >= maxPlies) {
+            return -1;
+        }
+        long key = game.getCanonicalKey();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = entries.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Searches every distinct position (mirror images folded together) with fewer than 'plies'
+    // discs and writes the book. Positions with a forced reply are left out, the bots answer
+    // those instantly anyway.
+    public static int generate(BoardGeometry geometry, int plies, int depth, long nodes, int threads, Path file)
+            throws Exception {
+        List<byte[]> positions = new ArrayList<>();
+        collect(new Connect4Game(geometry), plies, new HashSet<>(), positions);
+
+        TranspositionTable table = new TranspositionTable(64);
+        long[][] results = new long[positions.size()][];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> tasks = new ArrayList<>();
+            for (byte[] history : positions) {
+                tasks.add(pool.submit(() -> {
+                    Connect4Game game = Connect4Game.fromMoveHistory(history, geometry, 1, 2);
+                    NegamaxBot.Search search = new NegamaxBot.Search(game, nodes, System.nanoTime() + Long.MAX_VALUE / 2, table, null);
+                    int col = search.bestMove(depth);
+                    int score = search.getBestScore();
+                    if (col < 0 || score == Integer.MIN_VALUE) {
+                        return null;
+                    }
+                    if (game.isCanonicalMirrored()) {
+                        col = geometry.getCols() - 1 - col;
+                    }
+                    return new long[]{game.getCanonicalKey(), score, col, search.getCompletedDepth()};
+                }));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                results[i] = tasks.get(i).get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long[][] kept = Arrays.stream(results).filter(r -> r != null).toArray(long[][]::new);
+        Arrays.sort(kept, (a, b) -> Long.compare(a[0], b[0]));
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(geometry.getRows());
+            out.writeInt(geometry.getCols());
+            out.writeInt(geometry.getConnect());
+            out.writeInt(plies);
+            out.writeInt(kept.length);
+            out.writeInt(0);
+            for (long[] entry : kept) {
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeByte((int) entry[2]);
+                out.writeByte((int) Math.min(255, entry[3]));
+                out.writeShort(0);
+            }
+        }
+        return kept.length;
+    }
+
+    private static void collect(Connect4Game game, int plies, Set<Long> seen, List<byte[]> positions) {
+        if (game.getMoveCount() >= plies || game.checkWinner() || !seen.add(game.getCanonicalKey())) {
+            return;
+        }
+        positions.add(game.getMoveHistory());
+        for (int moves = game.getLegalMoves(); moves != 0; moves &= moves - 1) {
+            game.play(Integer.numberOfTrailingZeros(moves));
+            collect(game, plies, seen, positions);
+            game.undo();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long nodes = args.length > 2 ? Long.parseLong(args[2]) : 2_000_000;
+        Path file = Paths.get(args.length > 3 ? args[3] : DEFAULT_FILE);
+        BoardGeometry geometry = args.length > 6
+                ? BoardGeometry.of(Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]))
+                : BoardGeometry.STANDARD;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Building " + geometry.getLabel() + " book: positions before ply " + plies
+                + ", depth " + depth + ", " + nodes + " nodes each, " + threads + " threads");
+        long start = System.nanoTime();
+        int written = generate(geometry, plies, depth, nodes, threads, file);
+        System.out.println("Wrote " + written + " positions to " + file + " in "
+                + (System.nanoTime() - start) / 1_000_000_000 + " s");
+    }
+}
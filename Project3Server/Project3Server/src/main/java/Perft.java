@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Perft-style check and benchmark for Connect4Game. Counts the move sequences that reach
+// exactly 'depth' plies (a game that is already won is not played on), checks the counts
+// against known totals for the standard board and reports nodes per second.
+//
+// Usage: java -cp target/classes Perft [maxDepth] [threads] [rows cols connect]
+public class Perft {
+
+    // Move sequences of each length on the standard 6x7 board, index = depth
+    static final long[] STANDARD_COUNTS = {
+            1L, 7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L, 5673234L, 39394572L, 268031646L
+    };
+
+    public static long perft(Connect4Game game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (depth == 1) {
+            return Integer.bitCount(game.getLegalMoves()); // bulk count the last ply
+        }
+
+        long nodes = 0;
+        for (int moves = game.getLegalMoves(); moves != 0; moves &= moves - 1) {
+            game.play(Integer.numberOfTrailingZeros(moves));
+            if (!game.checkWinner()) {
+                nodes += perft(game, depth - 1);
+            }
+            game.undo();
+        }
+        return nodes;
+    }
+
+    // Same count, with the first two plies split into tasks across 'threads' workers
+    public static long perftParallel(Connect4Game game, int depth, int threads) throws Exception {
+        if (depth < 3 || threads <= 1) {
+            return perft(game, depth);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> tasks = new ArrayList<>();
+            for (int first = game.getLegalMoves(); first != 0; first &= first - 1) {
+                Connect4Game afterFirst = game.copy();
+                afterFirst.play(Integer.numberOfTrailingZeros(first));
+                if (afterFirst.checkWinner()) {
+                    continue;
+                }
+                for (int second = afterFirst.getLegalMoves(); second != 0; second &= second - 1) {
+                    Connect4Game start = afterFirst.copy(); // each task walks its own copy
+                    start.play(Integer.numberOfTrailingZeros(second));
+                    if (!start.checkWinner()) {
+                        tasks.add(pool.submit(() -> perft(start, depth - 2)));
+                    }
+                }
+            }
+
+            long nodes = 0;
+            for (Future<Long> task : tasks) {
+                nodes += task.get();
+            }
+            return nodes;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        BoardGeometry geometry = args.length > 4
+                ? BoardGeometry.of(Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]))
+                : BoardGeometry.STANDARD;
+        boolean checkCounts = geometry == BoardGeometry.STANDARD;
+
+        System.out.println("Perft on " + geometry.getLabel() + " up to depth " + maxDepth + ", 1 and " + threads + " threads");
+        System.out.println("depth        nodes    1 thread Mn/s    " + threads + " threads Mn/s   check");
+
+        boolean allMatch = true;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long single = perft(new Connect4Game(geometry), depth);
+            long singleNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long parallel = perftParallel(new Connect4Game(geometry), depth, threads);
+            long parallelNanos = System.nanoTime() - start;
+
+            String check;
+            if (single != parallel) {
+                check = "THREADS DISAGREE (" + parallel + ")";
+                allMatch = false;
+            } else if (checkCounts && depth < STANDARD_COUNTS.length) {
+                boolean ok = single == STANDARD_COUNTS[depth];
+                check = ok ? "ok" : "MISMATCH, expected " + STANDARD_COUNTS[depth];
+                allMatch &= ok;
+            } else {
+                check = "-";
+            }
+
+            System.out.println(String.format("%5d %12d %16.1f %18.1f   %s",
+                    depth, single, single * 1000.0 / Math.max(1, singleNanos), parallel * 1000.0 / Math.max(1, parallelNanos), check));
+        }
+
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thinks about the bot's next move while the human is still on theirs. Right after the bot moves,
+// each human reply is played on a private copy, most central first, and the bot's answer to it
+// is searched and kept. When the human's move arrives the answer is usually already there, and
+// even when it isn't the searches have left the transposition table warm.
+//
+// Pondering runs on a small pool of low-priority daemon threads, each search on its own thread
+// only (see BotStrategy.ponderMove), and is cancelled as soon as the human moves or the game ends.
+public final class Ponderer {
+
+    private static final class PonderPool {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+        static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "bot-ponder-" + COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    private final Map<Long, Integer> replies = new ConcurrentHashMap<>(); // position key -> bot column
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    private Ponderer() {
+    }
+
+    // Starts pondering 'game', a private copy with the human to move, on the shared pool
+    public static Ponderer start(BotStrategy strategy, Connect4Game game) {
+        return start(strategy, game, PonderPool.INSTANCE);
+    }
+
+    public static Ponderer start(BotStrategy strategy, Connect4Game game, Executor pool) {
+        Ponderer ponderer = new Ponderer();
+        pool.execute(() -> ponderer.run(strategy, game));
+        return ponderer;
+    }
+
+    private void run(BotStrategy strategy, Connect4Game game) {
+        for (int col : game.getGeometry().getCenterFirstColumns()) {
+            if (cancelled.get()) {
+                return;
+            }
+            if (!game.play(col)) {
+                continue;
+            }
+            if (!game.checkWinner() && !game.checkDraw()) {
+                int reply = strategy.ponderMove(game.copy(), cancelled);
+                if (!cancelled.get() && reply >= 0) {
+                    replies.put(game.getPositionKey(), reply);
+                }
+            }
+            game.undo();
+        }
+    }
+
+    // Stops the search; answers already found stay available
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    // Pondered answer for the position the human's move produced, or -1 if it wasn't reached
+    public int takeReply(Connect4Game game) {
+        Integer reply = replies.get(game.getPositionKey());
+        return reply != null && game.isValidMove(reply) ? reply : -1;
+    }
+
+    // Number of human replies answered so far
+    public int size() {
+        return replies.size();
+    }
+}
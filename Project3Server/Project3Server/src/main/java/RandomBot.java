@@ -0,0 +1,23 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+// Easy bot: any legal column, picked at random
+public class RandomBot implements BotStrategy {
+    public static final RandomBot INSTANCE = new RandomBot();
+
+    @Override
+    public int chooseMove(Connect4Game game) {
+        int validColumns = game.getLegalMoves(); // Bit c is set when column c is playable
+
+        // Return -1 if there are no valid moves
+        if (validColumns == 0) {
+            return -1;
+        }
+
+        // Pick a random valid column by dropping that many lowest set bits first
+        int pick = ThreadLocalRandom.current().nextInt(Integer.bitCount(validColumns));
+        for (int i = 0; i < pick; i++) {
+            validColumns &= validColumns - 1;
+        }
+        return Integer.numberOfTrailingZeros(validColumns);
+    }
+}
@@ -14,6 +14,16 @@ import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -23,25 +33,100 @@ import javafx.scene.control.ListView;
 public class Server{
 
 	int count = 1;
-	ArrayList<ClientThread> clients = new ArrayList<ClientThread>();
+	ConcurrentIntMap<ClientThread> clients = new ConcurrentIntMap<>(); // Connected clients by id
 	TheServer server;
 	private final Consumer<Message> callback;
 	private static Set<String> loggedInUsers = Collections.synchronizedSet(new HashSet<>());
 
-	Map<String, ObjectOutputStream> clientOutputs = new HashMap<>(); // Map clients to their output streams
-	Queue<Integer> waitingPlayers = new LinkedList<>(); // Created Game and waiting for someone to join
-	Map<Integer, Connect4Game> activeGames = new HashMap<>(); // Track active games by gameId
-	Map<Integer, Integer> rematchRequests = new HashMap<>(); // Track which players have requested a match
-	Map<Integer, Integer> playerToGameId = new HashMap<>(); // Map player IDs to the game IDs
-	Map<Integer, Integer> waitingPlayerTimers = new HashMap<>(); // Map waiting player IDs
-	int gameIdCounter = 1;
+	// Registries shared by every ClientThread and game event, keyed by client or game id. They are
+	// thread-safe and look ids up without boxing, locking or allocating (see ConcurrentIntMap).
+	Queue<Integer> waitingPlayers = new ConcurrentLinkedQueue<>(); // Created Game and waiting for someone to join
+	ConcurrentIntMap<Connect4Game> activeGames = new ConcurrentIntMap<>(); // Track active games by gameId
+	ConcurrentIntMap<Integer> rematchRequests = new ConcurrentIntMap<>(); // Track which players have requested a match
+	ConcurrentIntMap<Integer> playerToGameId = new ConcurrentIntMap<>(); // Map player IDs to the game IDs
+	ConcurrentIntMap<Integer> waitingPlayerTimers = new ConcurrentIntMap<>(); // Map waiting player IDs
+	ConcurrentIntMap<BoardGeometry> waitingPlayerGeometries = new ConcurrentIntMap<>(); // Board shape each waiting player asked for
+	ConcurrentIntMap<Ponderer> ponderers = new ConcurrentIntMap<>(); // Bot games thinking ahead during the human's turn
+	ConcurrentIntMap<GameMailbox> mailboxes = new ConcurrentIntMap<>(); // Serial event queue of each active game
+	Analyzer analyzer = new Analyzer(); // Column scores for hint requests, cached by position
+	AtomicInteger gameIdCounter = new AtomicInteger(1);
+
+	// Bot replies wait out a short delay for a better UX on one scheduler thread, then search on a
+	// fixed pool sized to the machine, so any number of bot games share a handful of threads
+	static final long BOT_MOVE_DELAY_MS = 1000;
+	private final ScheduledExecutorService botScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("bot-delay"));
+	private final ExecutorService botPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemonThreads("bot-move"));
+
+	// Game events (moves, timeouts, bot replies, rematch, return to lobby) run on each game's mailbox
+	// over this pool. Events write to sockets and may block, so there are a few threads per core.
+	private final ExecutorService gamePool = Executors.newFixedThreadPool(2 * Runtime.getRuntime().availableProcessors(), daemonThreads("game-events"));
+
+	// Runs each connection's ClientThread: platform threads, or virtual threads with
+	// -Dconnect4.connections=virtual (see ConnectionThreads)
+	private final ThreadFactory connectionThreads = ConnectionThreads.fromProperty();
 
 	Server(Consumer<Message> call){
 		callback = call;
+		OpeningBook.shared(); // map the opening book now rather than on the first bot move
 		server = new TheServer();
 		server.start();
 	}
 
+	void scheduleBotMove(Runnable move) {
+		botScheduler.schedule(() -> botPool.execute(move), BOT_MOVE_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	// Registers a fully set up game together with its mailbox
+	void openGame(int gameId, Connect4Game game) {
+		mailboxes.put(gameId, new GameMailbox(gamePool));
+		activeGames.put(gameId, game);
+	}
+
+	// Removes a game; events already in its mailbox still run, later ones are dropped
+	void closeGame(int gameId) {
+		activeGames.remove(gameId);
+		mailboxes.remove(gameId);
+		stopPondering(gameId);
+	}
+
+	// Queues 'event' on the game's mailbox, after the events already posted to it. Events for a
+	// game that has been closed are dropped.
+	void inGame(int gameId, GameMailbox.Event event) {
+		GameMailbox mailbox = mailboxes.get(gameId);
+		if (mailbox != null) {
+			mailbox.post(event);
+		}
+	}
+
+	// Executor view of a game's mailbox, for the turn timer's callbacks
+	Executor gameEvents(int gameId) {
+		return task -> inGame(gameId, task::run);
+	}
+
+	// Cancels the bot's pondering in a game and returns it, so answers it already found can still be used
+	Ponderer stopPondering(int gameId) {
+		Ponderer ponderer = ponderers.remove(gameId);
+		if (ponderer != null) {
+			ponderer.cancel();
+		}
+		return ponderer;
+	}
+
+	// TIMER_UPDATE for the turn just started: "deadline,serverNow" in epoch millis, so the client
+	// can correct for its own clock and count down locally without further messages
+	static Message timerUpdate(Connect4Game game) {
+		return new Message(MessageType.TIMER_UPDATE, game.getTurnDeadline() + "," + System.currentTimeMillis(), null);
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicInteger created = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + created.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
 	public class TheServer extends Thread{
 
 		public void run() {
@@ -51,8 +136,8 @@ public class Server{
 		    while(true) {
 				ClientThread c = new ClientThread(mysocket.accept(), count);
 				callback.accept(new Message(MessageType.NEWUSER, "client has connected to server: " + "client #" + count, null));
-				clients.add(c);
-				c.start();
+				clients.put(count, c);
+				connectionThreads.newThread(c).start();
 				count++;
 			    }
 			}
@@ -62,13 +147,15 @@ public class Server{
 			}
 		}
 
-		class ClientThread extends Thread{
+		class ClientThread implements Runnable{
 
 			String clientID;
 			Socket connection;
 			int count;
 			ObjectInputStream in;
-			ObjectOutputStream out;
+			volatile ObjectOutputStream out; // set once the handshake is done; write only through send()
+			private final ReentrantLock sendLock = new ReentrantLock();
+			private final AtomicBoolean analyzing = new AtomicBoolean(); // a hint search is pending for this client
 			String clientUsername;
 
 			ClientThread(Socket s, int count){
@@ -77,12 +164,38 @@ public class Server{
 				this.clientID = String.valueOf(count);
 			}
 
+			// Writes a message to this client. The reader thread, game mailboxes, broadcasts from other
+			// clients and hint searches all send to the same stream, and ObjectOutputStream is not
+			// thread-safe, so every write goes through here. A lock rather than synchronized keeps a
+			// virtual thread blocked on the socket from pinning its carrier. Messages to a client whose
+			// streams aren't open yet are dropped.
+			void send(Message message) throws IOException {
+				ObjectOutputStream stream = out;
+				if (stream == null) {
+					return;
+				}
+				sendLock.lock();
+				try {
+					stream.writeObject(message);
+					stream.flush();
+				} finally {
+					sendLock.unlock();
+				}
+			}
+
+			// Every ANALYZE gets an ANALYSIS back, empty when it was turned down, so the client can
+			// enable its HINT button again
+			void declineAnalysis(String reason) throws IOException {
+				send(new Message(MessageType.TEXT, reason, null));
+				send(new Message(MessageType.ANALYSIS, "", null));
+			}
+
 			public void updateClients(Message message) {
-				for (ClientThread t : clients) {
+				for (ClientThread t : clients.values()) {
 					try {
 						// Check if message is for everyone or specific client
 						if (message.getRecipient() == null || message.getRecipient().equals(t.clientID)) {
-							t.out.writeObject(message);
+							t.send(message);
 						}
 					} catch (Exception e) {
 						e.printStackTrace();
@@ -91,16 +204,19 @@ public class Server{
 			}
 
 			public void sendToRecipient(String recipient, Message message) {
-				for (ClientThread t : clients) {
-					// Find client with the matching clientID
-					if (t.clientID.equals(recipient)) {
-						try {
-							// Send the message to the matched client
-							t.out.writeObject(message);
-							break;
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
+				// Find client with the matching clientID
+				ClientThread t;
+				try {
+					t = clients.get(Integer.parseInt(recipient));
+				} catch (NumberFormatException e) {
+					return; // not a client id
+				}
+				if (t != null) {
+					try {
+						// Send the message to the matched client
+						t.send(message);
+					} catch (Exception e) {
+						e.printStackTrace();
 					}
 				}
 			}
@@ -119,18 +235,18 @@ public class Server{
 					Message drawMsg = new Message(MessageType.GAME_OVER, "Game ended in a draw due to inactivity.", null);
 
 					// Get output streams for both players
-					ObjectOutputStream p1Out = clientOutputs.get("client" + game.getCurrentPlayer());
-					ObjectOutputStream p2Out = clientOutputs.get("client" + game.getOtherPlayer(game.getCurrentPlayer()));
+					ClientThread p1Out = clients.get(game.getCurrentPlayer());
+					ClientThread p2Out = clients.get(game.getOtherPlayer(game.getCurrentPlayer()));
 
 					try {
-						if (p1Out != null) p1Out.writeObject(drawMsg);
-						if (p2Out != null) p2Out.writeObject(drawMsg);
+						if (p1Out != null) p1Out.send(drawMsg);
+						if (p2Out != null) p2Out.send(drawMsg);
 					} catch (IOException e) {
 						e.printStackTrace();
 					}
 
 					// Remove the game from active games
-					activeGames.remove(gameId);
+					closeGame(gameId);
 					return;
 				}
 
@@ -139,38 +255,383 @@ public class Server{
 				int newTurnPlayer = game.getCurrentPlayer();
 
 				// Create messages to update the board and notify whose turn it is
-				String updatedBoard = game.getBoardString();
+				String updatedBoard = game.getSnapshot().getBoardString();
 				Message updateMsg = new Message(MessageType.BOARD_UPDATE, updatedBoard, null);
 				Message newTurnMsg = new Message(MessageType.TURN, "client" + newTurnPlayer, null);
 
 				// Get output streams for the players
-				ObjectOutputStream timedOutOut = clientOutputs.get("client" + nextPlayer);
-				ObjectOutputStream newPlayerOut = clientOutputs.get("client" + newTurnPlayer);
-				ObjectOutputStream otherPlayerOut = clientOutputs.get("client" + game.getOtherPlayer(newTurnPlayer));
+				ClientThread timedOutOut = clients.get(nextPlayer);
+				ClientThread newPlayerOut = clients.get(newTurnPlayer);
+				ClientThread otherPlayerOut = clients.get(game.getOtherPlayer(newTurnPlayer));
 
 				try {
 					// Inform the timed-out player that they missed their turn
 					if (timedOutOut != null) {
-						timedOutOut.writeObject(new Message(MessageType.TEXT, "You ran out of time. Turn skipped.", null));
-						timedOutOut.writeObject(newTurnMsg);
+						timedOutOut.send(new Message(MessageType.TEXT, "You ran out of time. Turn skipped.", null));
+						timedOutOut.send(newTurnMsg);
 					}
 					// Send the updated board and new turn to the new current player
 					if (newPlayerOut != null) {
-						newPlayerOut.writeObject(updateMsg);
-						newPlayerOut.writeObject(newTurnMsg);
+						newPlayerOut.send(updateMsg);
+						newPlayerOut.send(newTurnMsg);
 					}
 					// Also send board and turn info to the opponent if needed
 					if (otherPlayerOut != null && otherPlayerOut != newPlayerOut) {
-						otherPlayerOut.writeObject(updateMsg);
-						otherPlayerOut.writeObject(newTurnMsg);
+						otherPlayerOut.send(updateMsg);
+						otherPlayerOut.send(newTurnMsg);
 					}
 				} catch (Exception ex) {
 					ex.printStackTrace();
 				}
 
-				// Start the turn timer for the next player
+				// Start the turn timer for the next player and send them its deadline
 				int finalNewTurnPlayer = newTurnPlayer;
-				game.startTurnTimer(() -> handleTurnTimeout(game, finalNewTurnPlayer, gameId));
+				game.startTurnTimer(() -> handleTurnTimeout(game, finalNewTurnPlayer, gameId), gameEvents(gameId));
+				try {
+					if (newPlayerOut != null) newPlayerOut.send(timerUpdate(game));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+
+			// Plays a MOVE from this client; runs on the game's mailbox, in order with the game's
+			// timeouts and bot replies
+			void handleMove(int gameId, int column) throws IOException {
+				Connect4Game game = activeGames.get(gameId);
+				if (game == null) {
+					return; // the game was closed while the move waited in the mailbox
+				}
+
+				// Ensure it's the player's turn
+				if (game.getCurrentPlayer() != count) {
+					callback.accept(new Message(MessageType.TEXT, "It's not your turn.", null));
+					return;
+				}
+
+				// Attempt to make the move in the game
+				boolean valid = game.makeMove(column, count);
+				game.cancelTurnTimer(); // Cancel the timer for the current turn
+
+				// If the move is invalid, inform the player
+				if (!valid) {
+					callback.accept(new Message(MessageType.TEXT, "Invalid move. Try again.", null));
+					return;
+				}
+
+				// Reset the timeout count after a valid move
+				game.resetTimeouts();
+
+				// Send the updated board state to the player(s)
+				String boardString = game.getSnapshot().getBoardString();
+				Message boardUpdateMessage = new Message(MessageType.BOARD_UPDATE, boardString, null);
+				send(boardUpdateMessage);
+
+				// Determine if the game is against a bot (player2 ID is negative)
+				boolean isBotGame = game.getPlayer2() < 0;
+				Ponderer ponderer = isBotGame ? stopPondering(gameId) : null; // the human has moved, stop thinking ahead
+				int opponent = isBotGame ? -1 : game.getOtherPlayer(count);
+				ClientThread opponentOut = isBotGame ? null : clients.get(opponent);
+				ClientThread currentOut = clients.get(count);
+
+				if (!isBotGame) {
+					// Human vs Human - send the updated board to both players
+					if (opponentOut != null) opponentOut.send(boardUpdateMessage);
+					if (currentOut != null) currentOut.send(boardUpdateMessage);
+				} else {
+					// Bot game - only update the human player
+					if (currentOut != null) {
+						currentOut.send(boardUpdateMessage);
+						// No need to update the timer for the bot's turn
+					}
+				}
+
+				// Check if there's a winner or draw
+				if (game.checkWinner()) {
+					String resultMessage = isBotGame ?
+							(game.getWinner() == 1 ? "You win!" : "You lose!") : // Bot game result
+							(game.getCurrentPlayer() == count ? "You win!" : "You lose!"); // Human vs Human result
+
+					// Always send game over message to the current player
+					send(new Message(MessageType.GAME_OVER, resultMessage, null));
+
+					if (!isBotGame) {
+						// Send game over message to opponent in Human vs Human games
+						if (opponentOut != null) {
+							opponentOut.send(new Message(MessageType.GAME_OVER,
+									game.getCurrentPlayer() == opponent ? "You win!" : "You lose!", null));
+						}
+
+						// Update stats for human vs human games
+						if (clientUsername != null) {
+							updateUserStats(clientUsername,
+									resultMessage.contains("win") ? "win" :
+											resultMessage.contains("lose") ? "loss" : "draw");
+						}
+					}
+					return;
+				} else if (game.checkDraw()) {
+					// If the game is a draw, send draw message to both players
+					send(new Message(MessageType.GAME_OVER, "Draw!", null));
+
+					if (!isBotGame) {
+						// Send draw message to opponent in Human vs Human games
+						if (opponentOut != null) {
+							opponentOut.send(new Message(MessageType.GAME_OVER, "Draw!", null));
+						}
+
+						// Update stats for human vs human games
+						if (clientUsername != null) {
+							updateUserStats(clientUsername, "draw");
+						}
+					}
+					return;
+				}
+
+				// Switch the turn to the next player
+				game.switchTurn();
+				int nextPlayer = game.getCurrentPlayer();
+
+				if (isBotGame) {
+					// If it's a bot game, make the bot move after a small delay
+					int botDifficulty = -game.getPlayer2(); // Get difficulty level from negative player ID
+					BotStrategy bot = BotStrategy.forDifficulty(botDifficulty);
+					scheduleBotMove(() -> {
+						// Make the bot's move based on its difficulty level, thinking on a private
+						// copy rebuilt from the latest snapshot rather than the live game
+						Connect4Game view = game.getSnapshot().toGame();
+						view.setTurnDuration(game.getTurnDuration()); // the search budget follows the turn clock
+
+						// Use the answer found while pondering this move, search only if there is none
+						int pondered = ponderer != null ? ponderer.takeReply(view) : -1;
+						int botColumn = pondered != -1 ? pondered : bot.chooseMove(view);
+
+						// The search ran on the bot pool; the move itself is played on the game's mailbox
+						inGame(gameId, () -> {
+							if (botColumn == -1 || activeGames.get(gameId) != game || game.getCurrentPlayer() != game.getPlayer2()) {
+								return; // no move, or the game was closed or moved on while the bot was thinking
+							}
+							game.makeMove(botColumn, game.getPlayer2());
+
+							// Send updated board to the human player
+							String updatedBoard = game.getSnapshot().getBoardString();
+							send(new Message(MessageType.BOARD_UPDATE, updatedBoard, null));
+
+							// Check for game over after bot's move
+							if (game.checkWinner()) {
+								send(new Message(MessageType.GAME_OVER,
+										game.getWinner() == 1 ? "You win!" : "You lose!", null));
+							}
+							else if (game.checkDraw()) {
+								send(new Message(MessageType.GAME_OVER, "Draw!", null));
+							}
+							else {
+								// Switch back to human player's turn
+								game.switchTurn();
+								send(new Message(MessageType.TURN, "client" + count, null));
+
+								// Start timer only for human player's turn
+								game.startTurnTimer(() -> handleTurnTimeout(game, count, gameId), gameEvents(gameId));
+								send(timerUpdate(game));
+
+								// Think about the answers to the human's possible moves meanwhile
+								if (bot.ponders()) {
+									Connect4Game ponderGame = game.getSnapshot().toGame();
+									ponderGame.setTurnDuration(game.getTurnDuration());
+									ponderers.put(gameId, Ponderer.start(bot, ponderGame));
+								}
+							}
+						});
+					});
+				} else {
+					// For human vs human, send turn update to both players
+					ClientThread nextOut = clients.get(nextPlayer);
+					ClientThread otherOut = clients.get(game.getOtherPlayer(nextPlayer));
+
+					Message turnMessage = new Message(MessageType.TURN, "client" + nextPlayer, null);
+					if (nextOut != null) nextOut.send(turnMessage);
+					if (otherOut != null && otherOut != nextOut) otherOut.send(turnMessage);
+
+					// Start the turn timer for the next player; the TIMER_UPDATE with its deadline follows below
+					game.startTurnTimer(() -> {
+						System.out.println("⏰ Player " + nextPlayer + " timed out.");
+
+						// Increment timeout count and check if both players timed out
+						game.incrementTimeouts();
+
+						if (game.getConsecutiveTimeouts() >= 2) {
+							System.out.println("⚠️ Both players timed out. Ending game as a draw.");
+							Message drawMsg = new Message(MessageType.GAME_OVER, "Game ended in a draw due to inactivity.", null);
+
+							ClientThread p1Out = clients.get(game.getCurrentPlayer());
+							ClientThread p2Out = clients.get(game.getOtherPlayer(nextPlayer));
+
+							try {
+								if (p1Out != null) p1Out.send(drawMsg);
+								if (p2Out != null) p2Out.send(drawMsg);
+							} catch (IOException e) {
+								e.printStackTrace();
+							}
+
+							closeGame(gameId);
+							return;
+						}
+
+						// Switch turn to the opponent
+						game.switchTurn();
+						int newTurnPlayer = game.getCurrentPlayer();
+
+						// Send updated board and new turn message
+						String updatedBoard = game.getSnapshot().getBoardString();
+						Message updateMsg = new Message(MessageType.BOARD_UPDATE, updatedBoard, null);
+						Message newTurnMsg = new Message(MessageType.TURN, "client" + newTurnPlayer, null);
+
+						ClientThread timedOutOut = clients.get(nextPlayer);
+						ClientThread newPlayerOut = clients.get(newTurnPlayer);
+						ClientThread otherPlayerOut = clients.get(game.getOtherPlayer(newTurnPlayer));
+
+						try {
+							if (timedOutOut != null) {
+								timedOutOut.send(new Message(MessageType.TEXT, "You ran out of time. Turn skipped.", null));
+								timedOutOut.send(newTurnMsg);
+							}
+							if (newPlayerOut != null) {
+								newPlayerOut.send(updateMsg);
+								newPlayerOut.send(newTurnMsg);
+							}
+							if (otherPlayerOut != null && otherPlayerOut != newPlayerOut) {
+								otherPlayerOut.send(updateMsg);
+								otherPlayerOut.send(newTurnMsg);
+							}
+						} catch (Exception ex) {
+							ex.printStackTrace();
+						}
+
+						// Restart the timer for the new player and send them its deadline
+						int finalNextPlayer = nextPlayer; // because lambdas need final vars
+						game.startTurnTimer(() -> handleTurnTimeout(game, finalNextPlayer, gameId), gameEvents(gameId));
+						try {
+							if (newPlayerOut != null) newPlayerOut.send(timerUpdate(game));
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}, gameEvents(gameId));
+					if (nextOut != null) nextOut.send(timerUpdate(game));
+				}
+			}
+
+			// Ends a game on the player's request; runs on the game's mailbox
+			void handleReturnToLobby(int returnGameId) throws IOException {
+				Connect4Game returnGame = activeGames.get(returnGameId);
+
+				// Check if the game exists, if not send an error message
+				if (returnGame == null) {
+					callback.accept(new Message(MessageType.TEXT, "Game session expired or not found.", null));
+					return; // Nothing to clean up
+				}
+
+				// Mark the game as finished (so it won't continue)
+				returnGame.setGameFinished(true);
+				callback.accept(new Message(MessageType.TEXT, "Returning to lobby. Game finished.", null));
+
+				// Optionally, notify the opponent that the current player has returned to the lobby
+				int opponentId = returnGame.getOtherPlayer(count);
+				ClientThread opponentOutt = clients.get(opponentId);
+				if (opponentOutt != null) {
+					opponentOutt.send(new Message(MessageType.TEXT, "Your opponent returned to the lobby.", null));
+				}
+
+				// Clean up the game session (remove from active games and player-to-game mapping)
+				closeGame(returnGameId);           // Remove the game, its mailbox and any pondering
+				playerToGameId.remove(count);      // Remove the player from the player-to-game mapping
+				playerToGameId.remove(opponentId); // Remove the opponent from the player-to-game mapping
+			}
+
+			// Handles a rematch request; runs on the old game's mailbox
+			void handleRematch(int lastGameId) throws IOException {
+				Connect4Game lastGame = activeGames.get(lastGameId);
+
+				System.out.println("Last game ID for client " + count + ": " + lastGameId);
+
+				// Check if the game has ended or doesn't exist anymore
+				if (lastGame == null || lastGame.isGameFinished()) {
+					callback.accept(new Message(MessageType.TEXT, "Game session expired or finished.", null));
+					return; // Nothing to rematch
+				}
+
+				// Get the opponent's ID
+				int opponentT = lastGame.getOtherPlayer(count);
+
+				if (opponentT < 0) {
+					// The opponent is a bot (indicated by a negative ID)
+					System.out.println("Client " + count + " requested a bot rematch.");
+
+					// Create a new game for the bot
+					Connect4Game newBotGame = new Connect4Game(lastGame.getGeometry());
+					int newBotGameId = gameIdCounter.getAndIncrement(); // Increment the game ID counter
+
+					int difficulty = -opponentT; // The difficulty level is the negative of the opponent's ID
+					newBotGame.setPlayers(count, opponentT); // Set the player and bot
+					newBotGame.setTurnDuration(lastGame.getTurnDuration()); // Use the same turn duration as the previous game
+
+					openGame(newBotGameId, newBotGame); // Add the new game to the active games map
+					playerToGameId.put(count, newBotGameId); // Update the player's game ID
+					closeGame(lastGameId); // Remove the finished game, its mailbox and any pondering
+
+					// Send the game start message to the player
+					ClientThread playerOut = clients.get(count);
+					if (playerOut != null) {
+						playerOut.send(new Message(MessageType.GAME_STARTED, "BOT," + newBotGame.getTurnDuration() + "," + newBotGame.getGeometry(), null));
+						playerOut.send(new Message(MessageType.TURN, "client" + count, null)); // Start the player's turn
+					}
+					return; // Bot rematch started
+				}
+
+				// If the opponent is human, handle the rematch request
+				rematchRequests.put(count, lastGameId); // Store the rematch request
+
+				System.out.println("Rematch Requests: " + rematchRequests);
+
+				// Check if the opponent also wants a rematch
+				Integer opponentRequest = rematchRequests.get(opponentT);
+				if (opponentRequest != null && opponentRequest == lastGameId) {
+					// Both players requested a rematch
+					System.out.println("Starting rematch between " + count + " and " + opponentT);
+
+					// Create a new game for the rematch
+					Connect4Game newGame = new Connect4Game(lastGame.getGeometry());
+					int newGameId = gameIdCounter.getAndIncrement(); // Increment the game ID counter
+
+					newGame.setPlayers(count, opponentT); // Set the players for the new game
+					openGame(newGameId, newGame); // Add the new game to active games
+					playerToGameId.put(count, newGameId); // Assign the new game ID to both players
+					playerToGameId.put(opponentT, newGameId);
+
+					rematchRequests.remove(count); // Clear the rematch requests
+					rematchRequests.remove(opponentT);
+					closeGame(lastGameId); // Both have moved on, remove the finished game
+
+					// Notify both players that the rematch is starting
+					ClientThread hostOut = clients.get(count);
+					ClientThread joinerOut = clients.get(opponentT);
+
+					if (hostOut != null) {
+						hostOut.send(new Message(MessageType.GAME_STARTED, "client" + count + "," + newGame.getGeometry(), null)); // Host starts the game
+					}
+					if (joinerOut != null) {
+						joinerOut.send(new Message(MessageType.GAME_STARTED, "client" + opponentT + "," + newGame.getGeometry(), null)); // Joiner starts the game
+					}
+
+					// Determine who starts the game and notify them
+					int startingPlayer = newGame.getCurrentPlayer();
+					ClientThread startingOut = clients.get(startingPlayer);
+					if (startingOut != null) {
+						startingOut.send(new Message(MessageType.TURN, "client" + startingPlayer, null)); // Start the turn for the starting player
+					}
+
+				} else {
+					// Only one player has requested a rematch so far
+					callback.accept(new Message(MessageType.TEXT, "Waiting for opponent to accept rematch...", null));
+				}
 			}
 
 			public void saveUser(String username, String password) {
@@ -208,7 +669,7 @@ public class Server{
 					callback.accept(new Message(MessageType.TEXT, "Successfully appended", null));
 
 					// Notify client that the user was successfully added
-					out.writeObject(new Message(MessageType.ADDING_USER, null, null));
+					send(new Message(MessageType.ADDING_USER, null, null));
 				} catch (IOException e) {
 					// Print error message if saving user fails
 					System.err.println("Error saving user: " + e.getMessage());
@@ -231,33 +692,27 @@ public class Server{
 						// Check if line has at least username and password and matches the input
 						if (parts.length >= 2 && parts[0].equals(username) && parts[1].equals(password)) {
 
-							// Synchronize access to the loggedInUsers set
-							synchronized (Server.loggedInUsers) {
-
-								// Check if user is already logged in
-								if (Server.loggedInUsers.contains(username)) {
-									// Inform client that the user is already logged in
-									out.writeObject(new Message(MessageType.ALREADY_LOGGED_IN, "ALREADY_LOGGED_IN", null));
-									return;
-								}
-
-								// Mark user as logged in
-								Server.loggedInUsers.add(username);
-								this.clientUsername = username;
-
-								// Inform client that login was successful
-								out.writeObject(new Message(MessageType.LOGIN, String.valueOf(true), null));
+							// Mark user as logged in unless they already are; add() on the synchronized set
+							// checks and marks in one step, and the reply is sent outside of any monitor
+							if (!Server.loggedInUsers.add(username)) {
+								// Inform client that the user is already logged in
+								send(new Message(MessageType.ALREADY_LOGGED_IN, "ALREADY_LOGGED_IN", null));
+								return;
 							}
+							this.clientUsername = username;
+
+							// Inform client that login was successful
+							send(new Message(MessageType.LOGIN, String.valueOf(true), null));
 							return;
 						}
 					}
 
 					// If credentials didn't match any record, notify client of invalid credentials
-					out.writeObject(new Message(MessageType.LOGIN, "INVALID_CREDENTIALS", null));
+					send(new Message(MessageType.LOGIN, "INVALID_CREDENTIALS", null));
 				} catch (IOException e) {
 					// Handle any file read errors and notify client of an error
 					e.printStackTrace();
-					out.writeObject(new Message(MessageType.LOGIN, "ERROR", null));
+					send(new Message(MessageType.LOGIN, "ERROR", null));
 				}
 			}
 
@@ -418,71 +873,26 @@ public class Server{
 				return "";
 			}
 
-			public int makeEasyMove(Connect4Game game) {
-				List<Integer> validColumns = new ArrayList<>();
-
-				// Check all columns (0 to 6) to see which are valid moves
-				for (int col = 0; col < 7; col++) {
-					if (game.isValidMove(col)) { // Check if the move is valid in the current column
-						validColumns.add(col); // Add valid columns to the list
-					}
-				}
-
-				// If there are valid moves, pick a random one from the list
-				if (!validColumns.isEmpty()) {
-					return validColumns.get((int)(Math.random() * validColumns.size())); // Randomly select a valid move
-				}
-
-				// Return -1 if there are no valid moves
-				return -1;
-			}
-
-
-			public int makeHardMove(Connect4Game game) {
-				// Simple heuristic-based AI for hard mode
-				// First check if we can win immediately
-				for (int col = 0; col < 7; col++) {
-					if (game.isValidMove(col)) {
-						Connect4Game testGame = game.copy();
-						testGame.makeMove(col, 2); // Assuming bot is player 2
-						if (testGame.checkWinner() && testGame.getWinner() == 2) {
-							return col;
-						}
-					}
-				}
-
-				// Then check if opponent can win next move and block
-				for (int col = 0; col < 7; col++) {
-					if (game.isValidMove(col)) {
-						Connect4Game testGame = game.copy();
-						testGame.makeMove(col, 1); // Assuming human is player 1
-						if (testGame.checkWinner() && testGame.getWinner() == 1) {
-							return col;
-						}
-					}
-				}
-
-				// Otherwise make a strategic move (prefer center columns)
-				int[] columnPriority = {3, 2, 4, 1, 5, 0, 6}; // Center columns first
-				for (int col : columnPriority) {
-					if (game.isValidMove(col)) {
-						return col;
-					}
+			// Reads the optional rows,cols,connect fields of a game request, null if the shape isn't supported
+			public BoardGeometry parseGeometry(String[] parts, int offset) {
+				try {
+					return BoardGeometry.parse(parts, offset);
+				} catch (IllegalArgumentException e) { // also covers NumberFormatException
+					return null;
 				}
-
-				// Fallback to random if all else fails
-				return makeEasyMove(game);
 			}
 
 			public void run(){
 
 				try {
 					in = new ObjectInputStream(connection.getInputStream());
-					out = new ObjectOutputStream(connection.getOutputStream());
+					ObjectOutputStream stream = new ObjectOutputStream(connection.getOutputStream());
 					connection.setTcpNoDelay(true);
 
-					out.writeObject(new Message(MessageType.PLAYER_ID, "client" + clientID, null));
-					clientOutputs.put("client" + count, out);
+					// The id goes out first, before other threads can see the stream and send to it
+					stream.writeObject(new Message(MessageType.PLAYER_ID, "client" + clientID, null));
+					stream.flush();
+					out = stream;
 				}
 				catch(Exception e) {
 					System.out.println("Streams not open");
@@ -514,16 +924,22 @@ public class Server{
 								// Handle the creation of a new game
 								callback.accept(new Message(MessageType.TEXT, "Client #" + count + " created a game.", null));
 
-								// Extract game details (such as the timer duration) from the message
+								// Extract game details (timer duration and optional rows,cols,connect) from the message
 								String[] parts = message.getMessage().split(",");
 								int turnTime = Integer.parseInt(parts[1]); // Get the turn time from the message
+								BoardGeometry geometry = parseGeometry(parts, 2);
+								if (geometry == null) {
+									send(new Message(MessageType.TEXT, "Unsupported board size.", null));
+									break;
+								}
 
 								// Add this client to the waiting list for a game
 								waitingPlayers.add(count);
 								waitingPlayerTimers.put(count, turnTime); // Store the turn time for this player
+								waitingPlayerGeometries.put(count, geometry); // Store the board shape for this player
 
 								// Notify the client that the game was created and they're waiting for an opponent
-								out.writeObject(new Message(MessageType.TEXT, "Game created. Waiting for opponent...", null));
+								send(new Message(MessageType.TEXT, "Game created. Waiting for opponent...", null));
 								break;
 
 							case REQUEST_GAMES:
@@ -533,71 +949,72 @@ public class Server{
 								// Loop through all the waiting players and generate game entries with their usernames
 								for (Integer playerId : waitingPlayers) {
 									// Find the ClientThread for this playerId using their count
-									String username = clients.stream()
-											.filter(c -> c.count == playerId)
-											.findFirst()
-											.map(c -> c.clientUsername)
-											.orElse("Unknown Player");
-
-									// Add the game entry to the list
-									gameEntries.add("Game by " + username);
+									ClientThread host = clients.get(playerId);
+									String username = host != null && host.clientUsername != null ? host.clientUsername : "Unknown Player";
+
+									// Add the game entry to the list, naming the board if it isn't the standard one
+									BoardGeometry shape = waitingPlayerGeometries.getOrDefault(playerId, BoardGeometry.STANDARD);
+									gameEntries.add("Game by " + username + (shape == BoardGeometry.STANDARD ? "" : " (" + shape.getLabel() + ")"));
 								}
 
 								// Join all the game entries into a single comma-separated string
 								String gameList = String.join(",", gameEntries);
 
 								// Send the list of available games back to the client
-								out.writeObject(new Message(MessageType.GAMELIST, gameList, null));
+								send(new Message(MessageType.GAMELIST, gameList, null));
 								break;
 
 							case JOIN_GAME:
 								// Notify callback that the client wants to join a game
 								callback.accept(new Message(MessageType.TEXT, "Client #" + count + " wants to join a game.", null));
 
-								// Check if there are any waiting players (i.e., available games to join)
-								if (!waitingPlayers.isEmpty()) {
-									// Get the host (first player in the waiting list)
-									int hostId = waitingPlayers.poll(); // Remove the host from the waiting queue
+								// Take the host (first player in the waiting list) if there is one; poll is
+								// atomic, so two joiners can't both get the same host
+								Integer waitingHost = waitingPlayers.poll();
+								if (waitingHost != null) {
+									int hostId = waitingHost;
 									int turnDuration = waitingPlayerTimers.getOrDefault(hostId, 30); // Get the host's turn duration, default to 30 if not set
 									waitingPlayerTimers.remove(hostId); // Clean up the host's entry from the waitingPlayerTimers map
+									BoardGeometry hostGeometry = waitingPlayerGeometries.getOrDefault(hostId, BoardGeometry.STANDARD);
+									waitingPlayerGeometries.remove(hostId);
 
-									// Create a new game and assign the turn duration
-									Connect4Game game = new Connect4Game();
+									// Create a new game on the host's board and assign the turn duration
+									Connect4Game game = new Connect4Game(hostGeometry);
 									game.setTurnDuration(turnDuration);
 
 									// Generate a new game ID
-									int gameId = gameIdCounter++;
+									int gameId = gameIdCounter.getAndIncrement();
+
+									// Assign players (host and joiner) to the game
+									game.setPlayers(hostId, count);
 
 									// Store the game in active games and map the players to the game
-									activeGames.put(gameId, game);
+									openGame(gameId, game);
 									playerToGameId.put(hostId, gameId);
 									playerToGameId.put(count, gameId);
 
-									// Assign players (host and joiner) to the game
-									game.setPlayers(hostId, count);
-
 									// Get output streams for the host and the joiner
-									ObjectOutputStream hostOut = clientOutputs.get("client" + hostId);
-									ObjectOutputStream joinerOut = clientOutputs.get("client" + count);
+									ClientThread hostOut = clients.get(hostId);
+									ClientThread joinerOut = clients.get(count);
 
 									// Notify the host and the joiner that the game has started
 									if (hostOut != null) {
-										hostOut.writeObject(new Message(MessageType.GAME_STARTED, "client" + count, null));
+										hostOut.send(new Message(MessageType.GAME_STARTED, "client" + count + "," + hostGeometry, null));
 									}
 									if (joinerOut != null) {
-										joinerOut.writeObject(new Message(MessageType.GAME_STARTED, "client" + hostId, null));
+										joinerOut.send(new Message(MessageType.GAME_STARTED, "client" + hostId + "," + hostGeometry, null));
 									}
 
 									// Notify the host that it's their turn
-									ObjectOutputStream startingPlayerOut = clientOutputs.get("client" + hostId);
+									ClientThread startingPlayerOut = clients.get(hostId);
 									if (startingPlayerOut != null) {
-										startingPlayerOut.writeObject(new Message(MessageType.TURN, "client" + hostId, null));
+										startingPlayerOut.send(new Message(MessageType.TURN, "client" + hostId, null));
 										// Optionally, the timer update could be sent here (commented out):
-										// startingPlayerOut.writeObject(new Message(MessageType.TIMER_UPDATE, String.valueOf(game.getTurnDuration()), null));
+										// startingPlayerOut.send(new Message(MessageType.TIMER_UPDATE, String.valueOf(game.getTurnDuration()), null));
 									}
 								} else {
 									// Inform the client if there are no games available to join
-									out.writeObject(new Message(MessageType.TEXT, "No games available to join right now.", null));
+									send(new Message(MessageType.TEXT, "No games available to join right now.", null));
 								}
 								break;
 
@@ -609,242 +1026,15 @@ public class Server{
 								callback.accept(new Message(MessageType.TEXT, "Client #" + count + " made a move: " + message.getMessage(), null));
 
 								// Check if the player is in a game
-								if (!playerToGameId.containsKey(count)) {
+								Integer moveGameId = playerToGameId.get(count);
+								if (moveGameId == null) {
 									callback.accept(new Message(MessageType.TEXT, "You're not in a game.", null));
 									break;
 								}
 
-								// Retrieve the game ID and game object for the player
-								int gameId = playerToGameId.get(count);
-								Connect4Game game = activeGames.get(gameId);
+								// Play it on the game's mailbox, in order with the game's other events
 								int column = Integer.parseInt(message.getMessage()); // Parse the column number
-
-								// Ensure it's the player's turn
-								if (game.getCurrentPlayer() != count) {
-									callback.accept(new Message(MessageType.TEXT, "It's not your turn.", null));
-									break;
-								}
-
-								// Attempt to make the move in the game
-								boolean valid = game.makeMove(column, count);
-								game.cancelTurnTimer(); // Cancel the timer for the current turn
-
-								// If the move is invalid, inform the player
-								if (!valid) {
-									callback.accept(new Message(MessageType.TEXT, "Invalid move. Try again.", null));
-									break;
-								}
-
-								// Reset the timeout count after a valid move
-								game.resetTimeouts();
-
-								// Send the updated board state to the player(s)
-								String boardString = game.getBoardString();
-								Message boardUpdateMessage = new Message(MessageType.BOARD_UPDATE, boardString, null);
-								out.writeObject(boardUpdateMessage);
-
-								// Determine if the game is against a bot (player2 ID is negative)
-								boolean isBotGame = game.getPlayer2() < 0;
-								int opponent = isBotGame ? -1 : game.getOtherPlayer(count);
-								ObjectOutputStream opponentOut = isBotGame ? null : clientOutputs.get("client" + opponent);
-								ObjectOutputStream currentOut = clientOutputs.get("client" + count);
-
-								if (!isBotGame) {
-									// Human vs Human - update both players' timers and send board updates
-									if (game.getCurrentPlayer() == count) {
-										if (opponentOut != null) {
-											opponentOut.writeObject(new Message(MessageType.TIMER_UPDATE, String.valueOf(game.getTurnDuration()), null));
-										}
-									} else {
-										if (currentOut != null) {
-											currentOut.writeObject(new Message(MessageType.TIMER_UPDATE, String.valueOf(game.getTurnDuration()), null));
-										}
-									}
-
-									// Send the updated board to both players
-									if (opponentOut != null) opponentOut.writeObject(boardUpdateMessage);
-									if (currentOut != null) currentOut.writeObject(boardUpdateMessage);
-								} else {
-									// Bot game - only update the human player
-									if (currentOut != null) {
-										currentOut.writeObject(boardUpdateMessage);
-										// No need to update the timer for the bot's turn
-									}
-								}
-
-								// Check if there's a winner or draw
-								if (game.checkWinner()) {
-									String resultMessage = isBotGame ?
-											(game.getWinner() == 1 ? "You win!" : "You lose!") : // Bot game result
-											(game.getCurrentPlayer() == count ? "You win!" : "You lose!"); // Human vs Human result
-
-									// Always send game over message to the current player
-									out.writeObject(new Message(MessageType.GAME_OVER, resultMessage, null));
-
-									if (!isBotGame) {
-										// Send game over message to opponent in Human vs Human games
-										if (opponentOut != null) {
-											opponentOut.writeObject(new Message(MessageType.GAME_OVER,
-													game.getCurrentPlayer() == opponent ? "You win!" : "You lose!", null));
-										}
-
-										// Update stats for human vs human games
-										if (clientUsername != null) {
-											updateUserStats(clientUsername,
-													resultMessage.contains("win") ? "win" :
-															resultMessage.contains("lose") ? "loss" : "draw");
-										}
-									}
-									break;
-								} else if (game.checkDraw()) {
-									// If the game is a draw, send draw message to both players
-									out.writeObject(new Message(MessageType.GAME_OVER, "Draw!", null));
-
-									if (!isBotGame) {
-										// Send draw message to opponent in Human vs Human games
-										if (opponentOut != null) {
-											opponentOut.writeObject(new Message(MessageType.GAME_OVER, "Draw!", null));
-										}
-
-										// Update stats for human vs human games
-										if (clientUsername != null) {
-											updateUserStats(clientUsername, "draw");
-										}
-									}
-									break;
-								}
-
-								// Switch the turn to the next player
-								game.switchTurn();
-								int nextPlayer = game.getCurrentPlayer();
-
-								if (isBotGame) {
-									// If it's a bot game, make the bot move after a small delay
-									int botDifficulty = -game.getPlayer2(); // Get difficulty level from negative player ID
-									new Thread(() -> {
-										try {
-											Thread.sleep(1000); // Small delay for a better UX
-
-											// Make the bot's move based on its difficulty level
-											int botColumn;
-											if (botDifficulty == 1) { // Easy bot
-												botColumn = makeEasyMove(game);
-											} else { // Hard bot
-												botColumn = makeHardMove(game);
-											}
-
-											if (botColumn != -1) { // If the bot makes a valid move
-												game.makeMove(botColumn, game.getPlayer2());
-
-												// Send updated board to the human player
-												String updatedBoard = game.getBoardString();
-												out.writeObject(new Message(MessageType.BOARD_UPDATE, updatedBoard, null));
-
-												// Check for game over after bot's move
-												if (game.checkWinner()) {
-													out.writeObject(new Message(MessageType.GAME_OVER,
-															game.getWinner() == 1 ? "You win!" : "You lose!", null));
-												}
-												else if (game.checkDraw()) {
-													out.writeObject(new Message(MessageType.GAME_OVER, "Draw!", null));
-												}
-												else {
-													// Switch back to human player's turn
-													game.switchTurn();
-													out.writeObject(new Message(MessageType.TURN, "client" + count, null));
-
-													// Start timer only for human player's turn
-													game.startTurnTimer(() -> handleTurnTimeout(game, count, gameId));
-												}
-											}
-										} catch (Exception e) {
-											e.printStackTrace();
-										}
-									}).start();
-								} else {
-									// For human vs human, send turn update to both players
-									ObjectOutputStream nextOut = clientOutputs.get("client" + nextPlayer);
-									ObjectOutputStream otherOut = clientOutputs.get("client" + game.getOtherPlayer(nextPlayer));
-
-									Message turnMessage = new Message(MessageType.TURN, "client" + nextPlayer, null);
-									if (nextOut != null) nextOut.writeObject(turnMessage);
-									if (otherOut != null && otherOut != nextOut) otherOut.writeObject(turnMessage);
-
-									// Start the turn timer for the next player
-									game.startTurnTimer(() -> {
-										System.out.println("⏰ Player " + nextPlayer + " timed out.");
-
-										// Increment timeout count and check if both players timed out
-										game.incrementTimeouts();
-
-										if (game.getConsecutiveTimeouts() >= 2) {
-											System.out.println("⚠️ Both players timed out. Ending game as a draw.");
-											Message drawMsg = new Message(MessageType.GAME_OVER, "Game ended in a draw due to inactivity.", null);
-
-											ObjectOutputStream p1Out = clientOutputs.get("client" + game.getCurrentPlayer());
-											ObjectOutputStream p2Out = clientOutputs.get("client" + game.getOtherPlayer(nextPlayer));
-
-											try {
-												if (p1Out != null) p1Out.writeObject(drawMsg);
-												if (p2Out != null) p2Out.writeObject(drawMsg);
-											} catch (IOException e) {
-												e.printStackTrace();
-											}
-
-											activeGames.remove(gameId);
-											return;
-										}
-
-										// Switch turn to the opponent
-										game.switchTurn();
-										int newTurnPlayer = game.getCurrentPlayer();
-
-										// Update the timers for both players
-										if (game.getCurrentPlayer() == count) {
-											try {
-												currentOut.writeObject(new Message(MessageType.TIMER_UPDATE, String.valueOf(game.getTurnDuration()), null));
-											} catch (IOException e) {
-												throw new RuntimeException(e);
-											}
-										} else {
-											try {
-												opponentOut.writeObject(new Message(MessageType.TIMER_UPDATE, String.valueOf(game.getTurnDuration()), null));
-											} catch (IOException e) {
-												throw new RuntimeException(e);
-											}
-										}
-
-										// Send updated board and new turn message
-										String updatedBoard = game.getBoardString();
-										Message updateMsg = new Message(MessageType.BOARD_UPDATE, updatedBoard, null);
-										Message newTurnMsg = new Message(MessageType.TURN, "client" + newTurnPlayer, null);
-
-										ObjectOutputStream timedOutOut = clientOutputs.get("client" + nextPlayer);
-										ObjectOutputStream newPlayerOut = clientOutputs.get("client" + newTurnPlayer);
-										ObjectOutputStream otherPlayerOut = clientOutputs.get("client" + game.getOtherPlayer(newTurnPlayer));
-
-										try {
-											if (timedOutOut != null) {
-												timedOutOut.writeObject(new Message(MessageType.TEXT, "You ran out of time. Turn skipped.", null));
-												timedOutOut.writeObject(newTurnMsg);
-											}
-											if (newPlayerOut != null) {
-												newPlayerOut.writeObject(updateMsg);
-												newPlayerOut.writeObject(newTurnMsg);
-											}
-											if (otherPlayerOut != null && otherPlayerOut != newPlayerOut) {
-												otherPlayerOut.writeObject(updateMsg);
-												otherPlayerOut.writeObject(newTurnMsg);
-											}
-										} catch (Exception ex) {
-											ex.printStackTrace();
-										}
-
-										// Restart the timer for the new player
-										int finalNextPlayer = nextPlayer; // because lambdas need final vars
-										game.startTurnTimer(() -> handleTurnTimeout(game, finalNextPlayer, gameId));
-									});
-								}
+								inGame(moveGameId, () -> handleMove(moveGameId, column));
 								break;
 
 
@@ -853,134 +1043,30 @@ public class Server{
 								System.out.println("Client #" + count + " requested to return to lobby.");
 
 								// Check if the player is currently in a game
-								if (!playerToGameId.containsKey(count)) {
+								Integer returnGameId = playerToGameId.get(count);
+								if (returnGameId == null) {
 									// If the player is not in a game, send a message indicating they aren't in one
 									callback.accept(new Message(MessageType.TEXT, "You're not in a game.", null));
 									break; // Exit the case since the player isn't in a game
 								}
 
-								// Retrieve the game ID the player is part of
-								int returnGameId = playerToGameId.get(count);
-								Connect4Game returnGame = activeGames.get(returnGameId);
-
-								// Check if the game exists, if not send an error message
-								if (returnGame == null) {
-									callback.accept(new Message(MessageType.TEXT, "Game session expired or not found.", null));
-									break; // Exit the case as the game isn't found
-								}
-
-								// Mark the game as finished (so it won't continue)
-								returnGame.setGameFinished(true);
-								callback.accept(new Message(MessageType.TEXT, "Returning to lobby. Game finished.", null));
-
-								// Optionally, notify the opponent that the current player has returned to the lobby
-								int opponentId = returnGame.getOtherPlayer(count);
-								ObjectOutputStream opponentOutt = clientOutputs.get("client" + opponentId);
-								if (opponentOutt != null) {
-									opponentOutt.writeObject(new Message(MessageType.TEXT, "Your opponent returned to the lobby.", null));
-								}
-
-								// Clean up the game session (remove from active games and player-to-game mapping)
-								activeGames.remove(returnGameId);  // Remove the game from active games
-								playerToGameId.remove(count);      // Remove the player from the player-to-game mapping
-								playerToGameId.remove(opponentId); // Remove the opponent from the player-to-game mapping
-
+								// Leave on the game's mailbox, after any move or timeout already queued
+								inGame(returnGameId, () -> handleReturnToLobby(returnGameId));
 								break;  // Exit the case after handling the return to lobby action
 
 							case REMATCH:
 								System.out.println("Client #" + count + " requested a rematch.");
 
 								// Check if the player is currently in a game
-								if (!playerToGameId.containsKey(count)) {
+								Integer lastGameId = playerToGameId.get(count);
+								if (lastGameId == null) {
 									// If the player isn't in a game, send a message indicating they aren't in one
 									callback.accept(new Message(MessageType.TEXT, "You're not in a game.", null));
 									break; // Exit the case since the player isn't in a game
 								}
 
-								// Retrieve the last game ID and the game object
-								int lastGameId = playerToGameId.get(count);
-								Connect4Game lastGame = activeGames.get(lastGameId);
-
-								System.out.println("Last game ID for client " + count + ": " + lastGameId);
-
-								// Check if the game has ended or doesn't exist anymore
-								if (lastGame == null || lastGame.isGameFinished()) {
-									callback.accept(new Message(MessageType.TEXT, "Game session expired or finished.", null));
-									break; // Exit the case since the game is finished or expired
-								}
-
-								// Get the opponent's ID
-								int opponentT = lastGame.getOtherPlayer(count);
-
-								if (opponentT < 0) {
-									// The opponent is a bot (indicated by a negative ID)
-									System.out.println("Client " + count + " requested a bot rematch.");
-
-									// Create a new game for the bot
-									Connect4Game newBotGame = new Connect4Game();
-									int newBotGameId = gameIdCounter++; // Increment the game ID counter
-
-									int difficulty = -opponentT; // The difficulty level is the negative of the opponent's ID
-									newBotGame.setPlayers(count, opponentT); // Set the player and bot
-									newBotGame.setTurnDuration(lastGame.getTurnDuration()); // Use the same turn duration as the previous game
-
-									activeGames.put(newBotGameId, newBotGame); // Add the new game to the active games map
-									playerToGameId.put(count, newBotGameId); // Update the player's game ID
-
-									// Send the game start message to the player
-									ObjectOutputStream playerOut = clientOutputs.get("client" + count);
-									if (playerOut != null) {
-										playerOut.writeObject(new Message(MessageType.GAME_STARTED, "BOT," + newBotGame.getTurnDuration(), null));
-										playerOut.writeObject(new Message(MessageType.TURN, "client" + count, null)); // Start the player's turn
-									}
-									break; // End the case for bot rematch
-								}
-
-								// If the opponent is human, handle the rematch request
-								rematchRequests.put(count, lastGameId); // Store the rematch request
-
-								System.out.println("Rematch Requests: " + rematchRequests);
-
-								// Check if the opponent also wants a rematch
-								if (rematchRequests.containsKey(opponentT) && rematchRequests.get(opponentT) == lastGameId) {
-									// Both players requested a rematch
-									System.out.println("Starting rematch between " + count + " and " + opponentT);
-
-									// Create a new game for the rematch
-									Connect4Game newGame = new Connect4Game();
-									int newGameId = gameIdCounter++; // Increment the game ID counter
-
-									activeGames.put(newGameId, newGame); // Add the new game to active games
-									playerToGameId.put(count, newGameId); // Assign the new game ID to both players
-									playerToGameId.put(opponentT, newGameId);
-
-									rematchRequests.remove(count); // Clear the rematch requests
-									rematchRequests.remove(opponentT);
-
-									// Notify both players that the rematch is starting
-									ObjectOutputStream hostOut = clientOutputs.get("client" + count);
-									ObjectOutputStream joinerOut = clientOutputs.get("client" + opponentT);
-
-									if (hostOut != null) {
-										hostOut.writeObject(new Message(MessageType.GAME_STARTED, "client" + count, null)); // Host starts the game
-									}
-									if (joinerOut != null) {
-										joinerOut.writeObject(new Message(MessageType.GAME_STARTED, "client" + opponentT, null)); // Joiner starts the game
-									}
-
-									newGame.setPlayers(count, opponentT); // Set the players for the new game
-
-									// Determine who starts the game and notify them
-									int startingPlayer = newGame.getCurrentPlayer();
-									ObjectOutputStream startingOut = clientOutputs.get("client" + startingPlayer);
-									if (startingOut != null) {
-										startingOut.writeObject(new Message(MessageType.TURN, "client" + startingPlayer, null)); // Start the turn for the starting player
-									}
-
-								} else {
-									// Only one player has requested a rematch so far
-									callback.accept(new Message(MessageType.TEXT, "Waiting for opponent to accept rematch...", null));
-								}
+								// Both players' requests go through the old game's mailbox, so they can't race
+								inGame(lastGameId, () -> handleRematch(lastGameId));
 								break; // Exit the case after handling the rematch
 
 							case USERNPASS:
@@ -1005,11 +1091,12 @@ public class Server{
 
 								// Remove from the waiting queue if the client is currently in it
 								if (waitingPlayers.remove(count)) {
+									waitingPlayerGeometries.remove(count);
 									// Notify the client that the game creation was canceled
-									out.writeObject(new Message(MessageType.TEXT, "Game creation canceled.", null));
+									send(new Message(MessageType.TEXT, "Game creation canceled.", null));
 								} else {
 									// Notify the client that they are not in the game creation queue
-									out.writeObject(new Message(MessageType.TEXT, "You are not in the game creation queue.", null));
+									send(new Message(MessageType.TEXT, "You are not in the game creation queue.", null));
 								}
 
 								break;
@@ -1044,7 +1131,7 @@ public class Server{
 
 									// Join all the formatted strings with semicolons and send the leaderboard message to the client
 									String leaderboardMessage = String.join(";", formatted);
-									out.writeObject(new Message(MessageType.LEADERBOARD, leaderboardMessage, null));
+									send(new Message(MessageType.LEADERBOARD, leaderboardMessage, null));
 
 								} catch (IOException e) {
 									// Handle errors in reading the file
@@ -1061,30 +1148,30 @@ public class Server{
 								callback.accept(new Message(MessageType.TEXT, "Received password: " + information[1].trim(), null));
 								checkCredentials(information[0], information[1]);
 								callback.accept(new Message(MessageType.TEXT, "Checking username and password", null));
-								out.writeObject(new Message(MessageType.USERNAME, clientUsername, null));
+								send(new Message(MessageType.USERNAME, clientUsername, null));
 								break;
 
 							case VIEW_ONLINE_USERS:
 								String loggedInUsersList = String.join(",", Server.loggedInUsers);
-								out.writeObject(new Message(MessageType.ONLINE_USERS, loggedInUsersList, null));
+								send(new Message(MessageType.ONLINE_USERS, loggedInUsersList, null));
 								break;
 
 							case GET_CHAT_RECIPIENTS:
 								String recipientList = String.join(",", Server.loggedInUsers);
-								out.writeObject(new Message(MessageType.CHAT_RECIPIENTS, recipientList, null));
+								send(new Message(MessageType.CHAT_RECIPIENTS, recipientList, null));
 								break;
 
 							case FRIEND_REQUEST_RESPONSE:
 								String requester = message.getRecipient();
 
 								// Find the original requester's client
-								for (ClientThread client : clients) {
+								for (ClientThread client : clients.values()) {
 									if (client.clientUsername != null && client.clientUsername.equals(requester)) {
 										// Send the response back
 										Message responseMsg = new Message(MessageType.FRIEND_REQUEST_RESULT, message.getMessage(),  // "accept" or "reject"
 												message.getRecipient() // The original requester
 										);
-										client.out.writeObject(responseMsg);
+										client.send(responseMsg);
 										break;
 									}
 								}
@@ -1103,14 +1190,14 @@ public class Server{
 									addFriend(mainClient, targetFriend);
 
 									// Now notify the target user, if they are online
-									for (ClientThread client : clients) {
+									for (ClientThread client : clients.values()) {
 										if (client.clientUsername != null && client.clientUsername.equals(targetFriend)) {
 											Message forwardMsg = new Message(
 													MessageType.FRIEND_REQUEST_NOTIFICATION,
 													mainClient,     // So target knows who sent the request
 													targetFriend    // Recipient of the friend request
 											);
-											client.out.writeObject(forwardMsg);
+											client.send(forwardMsg);
 											break;
 										}
 									}
@@ -1119,38 +1206,96 @@ public class Server{
 
 
 							case LOG_OUT:
-								synchronized (Server.loggedInUsers){
-									Server.loggedInUsers.remove(this.clientUsername);
-									callback.accept(new Message(MessageType.TEXT, "Logging out: " + this.clientUsername, null));
-									out.writeObject(new Message(MessageType.LOG_OUT, null, null));
-								}
+								Server.loggedInUsers.remove(this.clientUsername);
+								callback.accept(new Message(MessageType.TEXT, "Logging out: " + this.clientUsername, null));
+								send(new Message(MessageType.LOG_OUT, null, null));
 								break;
 
 							case VIEW_FRIENDS:
 								String username = message.getMessage(); // requesting user
 								String friends = getFriendsList(username); // "jane,john,tom"
 								Message response = new Message(MessageType.FRIENDS_LIST, friends, username);
-								out.writeObject(response);
+								send(response);
+								break;
+
+							case ANALYZE:
+								// Score every column of the player's current game as a hint
+								Integer analyzeGameId = playerToGameId.get(count);
+								Connect4Game analyzeGame = analyzeGameId != null ? activeGames.get(analyzeGameId) : null;
+								if (analyzeGame == null) {
+									declineAnalysis("You are not in a game.");
+									break;
+								}
+
+								// Only for the player to move, and only while the game goes on: the best move on the
+								// opponent's turn is theirs, not a hint for this player
+								GameSnapshot position = analyzeGame.getSnapshot();
+								if (position.getCurrentPlayer() != count || position.getWinner() != 0 || position.isDraw() || position.isGameFinished()) {
+									declineAnalysis("Hints are only available on your turn.");
+									break;
+								}
+								String cachedAnalysis = analyzer.getCached(position);
+								if (cachedAnalysis != null) {
+									send(new Message(MessageType.ANALYSIS, cachedAnalysis, null));
+									break;
+								}
+
+								// One hint at a time per client, so repeated clicks can't fill the bot pool
+								if (!analyzing.compareAndSet(false, true)) {
+									declineAnalysis("Still working on your last hint.");
+									break;
+								}
+								// Search on the bot pool so this reader thread keeps handling messages; a
+								// search already running for the position is shared
+								analyzer.analyzeAsync(position, botPool).whenComplete((analysis, error) -> {
+									analyzing.set(false);
+									try {
+										if (error != null) {
+											error.printStackTrace();
+											send(new Message(MessageType.ANALYSIS, "", null));
+										} else {
+											send(new Message(MessageType.ANALYSIS, analysis, null));
+										}
+									} catch (IOException e) {
+										e.printStackTrace();
+									}
+								});
 								break;
 
 							case CREATE_BOT_GAME:
-								callback.accept(new Message(MessageType.TEXT, "Client #" + count + " created a bot game.", null));
 								String[] botParts = message.getMessage().split(",");
-								int difficulty = Integer.parseInt(botParts[0]); // 1 = easy, 2 = hard
-								int botTurnTime = Integer.parseInt(botParts[1]);
+								int difficulty; // 1 = easy, 2 = hard, 3 = expert, 4 = MCTS
+								int botTurnTime;
+								try {
+									difficulty = Integer.parseInt(botParts[0]);
+									botTurnTime = Integer.parseInt(botParts[1]);
+								} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+									send(new Message(MessageType.TEXT, "Malformed bot game request.", null));
+									break;
+								}
+								if (difficulty < BotStrategy.MIN_DIFFICULTY || difficulty > BotStrategy.MAX_DIFFICULTY) {
+									send(new Message(MessageType.TEXT, "Unknown bot difficulty.", null));
+									break;
+								}
+								BoardGeometry botGeometry = parseGeometry(botParts, 2);
+								if (botGeometry == null) {
+									send(new Message(MessageType.TEXT, "Unsupported board size.", null));
+									break;
+								}
+								callback.accept(new Message(MessageType.TEXT, "Client #" + count + " created a bot game.", null));
 
-								Connect4Game gameBot = new Connect4Game();
+								Connect4Game gameBot = new Connect4Game(botGeometry);
 								gameBot.setTurnDuration(botTurnTime);
-								int gameBotId = gameIdCounter++;
-								activeGames.put(gameBotId, gameBot);
-								playerToGameId.put(count, gameBotId);
+								int gameBotId = gameIdCounter.getAndIncrement();
 
 								// Set players - negative value indicates bot difficulty
 								gameBot.setPlayers(count, -difficulty);
+								openGame(gameBotId, gameBot);
+								playerToGameId.put(count, gameBotId);
 
 								// Notify client game has started against bot
-								out.writeObject(new Message(MessageType.GAME_STARTED, "BOT," + botTurnTime, null));
-								out.writeObject(new Message(MessageType.TURN, "client" + count, null));
+								send(new Message(MessageType.GAME_STARTED, "BOT," + botTurnTime + "," + botGeometry, null));
+								send(new Message(MessageType.TURN, "client" + count, null));
 								break;
 							}
 						}
@@ -1160,11 +1305,9 @@ public class Server{
 
 							// Remove from logged-in users set if this client was logged in
 							if (this.clientUsername != null) {
-								synchronized (Server.loggedInUsers) {
-									Server.loggedInUsers.remove(this.clientUsername);
-								}
+								Server.loggedInUsers.remove(this.clientUsername);
 							}
-							clients.remove(this);
+							clients.remove(count, this);
 							break;
 						}
 					}
@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless bot-vs-bot tournament: every pair of the chosen bots plays 'games' games, half with
+// each bot moving first, spread over a thread pool with no sockets or JavaFX involved. The first
+// plies of every game are random so deterministic bots don't replay the same game. Prints each
+// pairing's score with a 95% confidence interval and Elo difference, each bot's average time per
+// move and the overall games per second.
+//
+// Usage: java -cp target/classes Tournament [games] [threads] [randomPlies] [bot ...]
+// Bots: random, heuristic, hard, expert, mcts-light, mcts (default: random heuristic hard mcts-light)
+public class Tournament {
+
+    static final Map<String, BotStrategy> BOTS = new LinkedHashMap<>();
+    static {
+        BOTS.put("random", RandomBot.INSTANCE);
+        BOTS.put("heuristic", HeuristicBot.INSTANCE);
+        BOTS.put("hard", NegamaxBot.HARD);
+        BOTS.put("expert", NegamaxBot.EXPERT);
+        BOTS.put("mcts-light", new MctsBot(2_000, 1000));
+        BOTS.put("mcts", MctsBot.STRONG);
+    }
+
+    // Results of one bot against another, counted from the first bot's side
+    static final class Pairing {
+        final String bot;
+        final String opponent;
+        final AtomicInteger wins = new AtomicInteger();
+        final AtomicInteger draws = new AtomicInteger();
+        final AtomicInteger losses = new AtomicInteger();
+
+        Pairing(String bot, String opponent) {
+            this.bot = bot;
+            this.opponent = opponent;
+        }
+
+        int games() {
+            return wins.get() + draws.get() + losses.get();
+        }
+
+        // Points per game, a win counting 1 and a draw 1/2
+        double score() {
+            return (wins.get() + draws.get() / 2.0) / games();
+        }
+
+        // Half width of the 95% confidence interval of score()
+        double margin() {
+            int n = games();
+            double mean = score();
+            double meanOfSquares = (wins.get() + draws.get() / 4.0) / n;
+            return 1.96 * Math.sqrt(Math.max(0, meanOfSquares - mean * mean) / n);
+        }
+
+        // Elo difference matching score(), clamped for sweeps
+        double elo() {
+            double s = Math.min(Math.max(score(), 0.001), 0.999);
+            return -400 * Math.log10(1 / s - 1);
+        }
+    }
+
+    // Time spent and moves made by one bot over the whole tournament
+    static final class Clock {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder moves = new LongAdder();
+
+        double millisPerMove() {
+            return moves.sum() == 0 ? 0 : nanos.sum() / 1e6 / moves.sum();
+        }
+    }
+
+    // Plays one game on a fresh board and returns 1 or 2 for the winning bot, or 0 for a draw
+    static int playGame(BotStrategy first, BotStrategy second, Clock firstClock, Clock secondClock,
+                        BoardGeometry geometry, int randomPlies) {
+        Connect4Game game = new Connect4Game(geometry);
+        game.setPlayers(1, 2);
+        while (!game.checkWinner() && !game.checkDraw()) {
+            int col;
+            if (game.getMoveCount() < randomPlies) {
+                col = RandomBot.INSTANCE.chooseMove(game);
+            } else {
+                boolean firstToMove = game.getCurrentPlayer() == 1;
+                Clock clock = firstToMove ? firstClock : secondClock;
+                long start = System.nanoTime();
+                col = (firstToMove ? first : second).chooseMove(game.copy());
+                clock.nanos.add(System.nanoTime() - start);
+                clock.moves.increment();
+            }
+            if (!game.makeMove(col, game.getCurrentPlayer())) {
+                throw new IllegalStateException("Illegal column " + col + " in " + game.getBoardString());
+            }
+            if (!game.checkWinner()) {
+                game.switchTurn();
+            }
+        }
+        return game.checkWinner() ? game.getWinner() : 0;
+    }
+
+    // Round robin over 'names', 'games' games per pairing; returns one Pairing per pair
+    static List<Pairing> run(List<String> names, int games, int threads, int randomPlies,
+                             BoardGeometry geometry, Map<String, Clock> clocks) throws Exception {
+        for (String name : names) {
+            if (!BOTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown bot " + name + ", expected one of " + BOTS.keySet());
+            }
+            clocks.putIfAbsent(name, new Clock());
+        }
+
+        List<Pairing> pairings = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < names.size(); i++) {
+                for (int j = i + 1; j < names.size(); j++) {
+                    Pairing pairing = new Pairing(names.get(i), names.get(j));
+                    pairings.add(pairing);
+                    BotStrategy bot = BOTS.get(pairing.bot);
+                    BotStrategy opponent = BOTS.get(pairing.opponent);
+                    Clock botClock = clocks.get(pairing.bot);
+                    Clock opponentClock = clocks.get(pairing.opponent);
+                    for (int g = 0; g < games; g++) {
+                        boolean botFirst = g % 2 == 0;
+                        tasks.add(pool.submit(() -> {
+                            int winner = botFirst
+                                    ? playGame(bot, opponent, botClock, opponentClock, geometry, randomPlies)
+                                    : playGame(opponent, bot, opponentClock, botClock, geometry, randomPlies);
+                            if (winner == 0) {
+                                pairing.draws.incrementAndGet();
+                            } else if ((winner == 1) == botFirst) {
+                                pairing.wins.incrementAndGet();
+                            } else {
+                                pairing.losses.incrementAndGet();
+                            }
+                        }));
+                    }
+                }
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return pairings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int randomPlies = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        List<String> names = args.length > 3
+                ? Arrays.asList(Arrays.copyOfRange(args, 3, args.length))
+                : Arrays.asList("random", "heuristic", "hard", "mcts-light");
+
+        System.out.println("Tournament: " + names + ", " + games + " games per pairing, "
+                + randomPlies + " random opening plies, " + threads + " threads");
+
+        Map<String, Clock> clocks = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        List<Pairing> pairings = run(names, games, threads, randomPlies, BoardGeometry.STANDARD, clocks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        System.out.println(String.format("%-12s %-12s %6s %6s %6s %18s %8s", "bot", "opponent", "wins", "draws", "losses", "score", "elo"));
+        int totalGames = 0;
+        for (Pairing p : pairings) {
+            totalGames += p.games();
+            System.out.println(String.format("%-12s %-12s %6d %6d %6d %8.1f%% +/-%4.1f%% %+8.0f",
+                    p.bot, p.opponent, p.wins.get(), p.draws.get(), p.losses.get(),
+                    p.score() * 100, p.margin() * 100, p.elo()));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-12s %10s %12s", "bot", "moves", "ms/move"));
+        for (Map.Entry<String, Clock> entry : clocks.entrySet()) {
+            System.out.println(String.format("%-12s %10d %12.3f",
+                    entry.getKey(), entry.getValue().moves.sum(), entry.getValue().millisPerMove()));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%d games in %.1f s, %.1f games/s", totalGames, seconds, totalGames / seconds));
+    }
+}
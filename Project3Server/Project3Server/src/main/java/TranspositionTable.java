@@ -0,0 +1,214 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size transposition table for the bot searches, shared by every search thread.
+//
+// Entries live in two preallocated long[] arrays, so there is nothing to allocate or lock while
+// searching. Each slot holds the packed entry in 'data' and key ^ data in 'checks'. Threads read
+// and write the two words without synchronization: a slot torn by a concurrent write no longer
+// passes the key check and simply reads as a miss.
+//
+// Entries are stored under the canonical (mirror-folded) key, so a position and its mirror image
+// share one slot; best moves are stored in canonical orientation and flipped back on probe.
+//
+// Every bot search registers with newSearch() and endSearch(). Deeper entries are kept over
+// shallower ones only while they are live: stored since the oldest search still running started.
+// Many games search the shared table at once, so a later search starting doesn't age out the
+// entries of one still in progress; once those searches end, their entries give way to fresh ones
+// of any depth. Running searches sit in a fixed array of slots, so registering one takes a few
+// compare-and-sets rather than a lock.
+//
+// The shared table is sized once, from -Dconnect4.ttMegabytes (default 16), or from
+// configureShared() before the first bot search.
+public final class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1; // score is at least the stored value (beta cutoff)
+    public static final int UPPER = 2; // score is at most the stored value (no move raised alpha)
+
+    private static final String SIZE_PROPERTY = "connect4.ttMegabytes";
+    private static final int DEFAULT_MEGABYTES = 16;
+    private static final int BYTES_PER_SLOT = 16;
+
+    // data layout: score in bits 0-31, depth 32-39, bound 40-41, move + 1 in 42-46 (0 = none),
+    // generation 47-62
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 47;
+    private static final int GENERATION_MASK = 0xFFFF;
+
+    // Search ids carry the index of their slot in the low bits. Far more slots than the bot pools
+    // have threads; a search that finds them all taken still runs, its entries just aren't protected.
+    private static final int SLOT_BITS = 7;
+    private static final int RUNNING_SLOTS = 1 << (SLOT_BITS - 1);
+    private static final int NO_SLOT = (1 << SLOT_BITS) - 1;
+
+    private static volatile TranspositionTable shared;
+
+    private final long[] checks;
+    private final long[] data;
+    private final int indexMask;
+
+    // Generation of the latest search started (bits 0-15) and of the oldest one still running
+    // (16-31), or the latest again when none is. One volatile read per store.
+    private final AtomicInteger window = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong(); // searches started so far
+    private final AtomicLongArray running = new AtomicLongArray(RUNNING_SLOTS); // generations, 0 = free
+
+    // Table using about 'megabytes' of memory, rounded down to a power of two slots
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        }
+        long slots = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_SLOT);
+        slots = Math.min(slots, 1 << 30);
+        checks = new long[(int) slots];
+        data = new long[(int) slots];
+        indexMask = (int) slots - 1;
+    }
+
+    // Table used by the server's bots, created on first use
+    public static TranspositionTable shared() {
+        TranspositionTable table = shared;
+        if (table == null) {
+            synchronized (TranspositionTable.class) {
+                table = shared;
+                if (table == null) {
+                    table = new TranspositionTable(Integer.getInteger(SIZE_PROPERTY, DEFAULT_MEGABYTES));
+                    shared = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    // Replaces the shared table, e.g. from startup options; searches already running keep the old one
+    public static void configureShared(int megabytes) {
+        shared = new TranspositionTable(megabytes);
+    }
+
+    public int getSlots() {
+        return data.length;
+    }
+
+    // Registers a search; pass the returned id to endSearch() when it finishes. Entries stored
+    // from now on are protected until every search running at the time has ended.
+    public long newSearch() {
+        long generation = started.incrementAndGet();
+        int slot = NO_SLOT;
+        for (int i = 0; i < RUNNING_SLOTS; i++) {
+            int candidate = (int) (generation + i) & (RUNNING_SLOTS - 1);
+            if (running.get(candidate) == 0 && running.compareAndSet(candidate, 0, generation)) {
+                slot = candidate;
+                break;
+            }
+        }
+        publishWindow();
+        return generation << SLOT_BITS | slot;
+    }
+
+    public void endSearch(long search) {
+        int slot = (int) search & NO_SLOT;
+        if (slot != NO_SLOT) {
+            running.compareAndSet(slot, search >>> SLOT_BITS, 0);
+        }
+        publishWindow();
+    }
+
+    // Searches start and end concurrently, so keep recomputing until the window matches a scan
+    // made after this thread's own change; whoever changes it later does the same.
+    private void publishWindow() {
+        while (true) {
+            int current = window.get();
+            int next = computeWindow();
+            if (current == next || window.compareAndSet(current, next) && computeWindow() == next) {
+                return;
+            }
+        }
+    }
+
+    private int computeWindow() {
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < RUNNING_SLOTS; i++) {
+            long generation = running.get(i);
+            if (generation != 0 && generation < oldest) {
+                oldest = generation;
+            }
+        }
+        long latest = started.get(); // read after the slots, so no running search is later
+        if (oldest == Long.MAX_VALUE) {
+            oldest = latest;
+        }
+        return (int) ((oldest & GENERATION_MASK) << 16 | (latest & GENERATION_MASK));
+    }
+
+    public void clear() {
+        Arrays.fill(checks, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    // Packed entry for the game's position, or 0 when there is none. Read it with the static
+    // accessors below; bestMove() needs the same game to undo the mirroring.
+    public long probe(Connect4Game game) {
+        long key = game.getCanonicalKey();
+        int index = (int) key & indexMask;
+        long entry = data[index];
+        if ((checks[index] ^ entry) != key || entry == 0) {
+            return 0;
+        }
+        return entry;
+    }
+
+    // Stores a search result. A slot is taken over when it is empty, no longer live, or searched
+    // no deeper than the new result.
+    public void store(Connect4Game game, int depth, int score, int bound, int bestMove) {
+        long key = game.getCanonicalKey();
+        int index = (int) key & indexMask;
+        int window = this.window.get();
+        int age = window & GENERATION_MASK;
+        int oldest = window >>> 16;
+
+        long old = data[index];
+        if (old != 0 && depth(old) > depth && ((generation(old) - oldest) & GENERATION_MASK) <= ((age - oldest) & GENERATION_MASK)) {
+            return; // keep the deeper result, a running search may still need it
+        }
+
+        if (bestMove >= 0 && game.isCanonicalMirrored()) {
+            bestMove = game.getCols() - 1 - bestMove;
+        }
+        long entry = (score & 0xFFFFFFFFL)
+                | ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (bestMove + 1) << MOVE_SHIFT)
+                | ((long) age << GENERATION_SHIFT);
+        data[index] = entry;
+        checks[index] = key ^ entry;
+    }
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    // Stored best move for the game's orientation, or -1 if none was recorded
+    public static int bestMove(long entry, Connect4Game game) {
+        int move = (int) ((entry >>> MOVE_SHIFT) & 0x1F) - 1;
+        if (move >= 0 && game.isCanonicalMirrored()) {
+            move = game.getCols() - 1 - move;
+        }
+        return move;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hashed-wheel timer for turn clocks, shared by every game on the server. One daemon thread walks
+// a ring of buckets, one bucket per tick; a timeout lands in the bucket its deadline falls in and
+// carries the number of full turns of the wheel still to wait. Scheduling and cancelling just link
+// or unlink a node, so both are O(1), and however many games are running there is one thread.
+//
+// Deadlines are rounded up to the next tick. Callbacks run on the wheel thread and must be short:
+// hand anything slow (socket writes to many clients, searches) to another executor.
+public final class TurnTimer {
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512; // 51.2 s per turn of the wheel at 100 ms ticks
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static volatile TurnTimer shared;
+
+    private final long tickNanos;
+    private final Timeout[] wheel; // head of each bucket's doubly linked list
+    private final int mask;
+    private final long startNanos;
+    private final Thread worker;
+    private long tick = 1;         // next tick to process, guarded by this
+    private int pending;           // scheduled and not yet fired or cancelled, guarded by this
+
+    // A scheduled callback; cancel() it to stop it firing
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private Timeout prev;
+        private Timeout next;
+        private int bucket = -1;   // -1 once fired or cancelled
+        private long rounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        // True if the callback had not fired yet and now never will
+        public boolean cancel() {
+            synchronized (TurnTimer.this) {
+                if (bucket < 0) {
+                    return false;
+                }
+                unlink(this);
+                return true;
+            }
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+    }
+
+    public TurnTimer(long tickMillis, int wheelSize) {
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        wheel = new Timeout[Math.max(size, 1)];
+        mask = wheel.length - 1;
+        startNanos = System.nanoTime();
+        worker = new Thread(this::run, "turn-timer-" + COUNT.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Timer used by the server's games, started on first use
+    public static TurnTimer shared() {
+        TurnTimer timer = shared;
+        if (timer == null) {
+            synchronized (TurnTimer.class) {
+                timer = shared;
+                if (timer == null) {
+                    timer = new TurnTimer(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+                    shared = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    // Runs 'task' once on the wheel thread after 'delay'
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(Math.max(delay, 0)));
+        synchronized (this) {
+            long due = (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+            due = Math.max(due, tick);
+            timeout.rounds = (due - tick) / wheel.length;
+            timeout.bucket = (int) (due & mask);
+            Timeout head = wheel[timeout.bucket];
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            wheel[timeout.bucket] = timeout;
+            pending++;
+        }
+        return timeout;
+    }
+
+    // Number of timeouts waiting to fire
+    public synchronized int pending() {
+        return pending;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        pending--;
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (true) {
+            long tickNanosFromStart;
+            synchronized (this) {
+                tickNanosFromStart = tick * tickNanos;
+            }
+            long sleepNanos = startNanos + tickNanosFromStart - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue; // sleep can return early, check the clock again
+            }
+
+            synchronized (this) {
+                Timeout timeout = wheel[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.rounds == 0) {
+                        unlink(timeout);
+                        expired.add(timeout);
+                    } else {
+                        timeout.rounds--;
+                    }
+                    timeout = next;
+                }
+                tick++;
+            }
+
+            for (Timeout timeout : expired) {
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) { // whatever one game's task throws, every other clock keeps running
+                    e.printStackTrace();
+                }
+            }
+            expired.clear();
+        }
+    }
+}
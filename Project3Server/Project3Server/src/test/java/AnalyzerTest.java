@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class AnalyzerTest {
+
+	private GameSnapshot play(String columns) {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		for (char c : columns.toCharArray()) {
+			assertTrue(game.makeMove(c - '0', game.getCurrentPlayer()));
+			game.switchTurn();
+		}
+		return game.getSnapshot();
+	}
+
+	@Test
+	void immediateWinAndFullColumns() {
+		// Player 1 wins at once in column 3; column 6 is full
+		String[] columns = new Analyzer(200).analyze(play("001122666666")).split(",");
+		assertEquals(7, columns.length);
+		assertEquals("W1", columns[3]);
+		assertEquals("x", columns[6]);
+	}
+
+	@Test
+	void missedBlockIsAForcedLoss() {
+		// Player 2 must block column 3; anything else lets player 1 win on the next ply
+		String[] columns = new Analyzer(200).analyze(play("00112")).split(",");
+		assertFalse(columns[3].startsWith("L"), columns[3]);
+		assertEquals("L2", columns[0]);
+		assertEquals("L2", columns[6]);
+	}
+
+	@Test
+	void repeatedRequestsHitTheCache() {
+		Analyzer analyzer = new Analyzer(100);
+		GameSnapshot position = play("3342");
+		assertNull(analyzer.getCached(position));
+		String first = analyzer.analyze(position);
+		assertSame(first, analyzer.getCached(position));
+		assertSame(first, analyzer.analyze(play("3342")));
+	}
+
+	@Test
+	void concurrentRequestsShareOneSearch() throws InterruptedException {
+		Analyzer analyzer = new Analyzer(200);
+		GameSnapshot position = play("3342");
+		CountDownLatch start = new CountDownLatch(1);
+		Set<String> results = ConcurrentHashMap.newKeySet();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 16; t++) {
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					results.add(analyzer.analyze(play("3342")));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(1, analyzer.getSearchCount());
+		assertEquals(1, results.size());
+		assertEquals(analyzer.getCached(position), results.iterator().next());
+	}
+
+	@Test
+	void formatsScores() {
+		int ply = 10;
+		int[] scores = {Integer.MIN_VALUE, NegamaxBot.WIN - 15, -(NegamaxBot.WIN - 12), 3, -4};
+		assertEquals("x,W5,L2,3,-4", Analyzer.format(scores, ply));
+	}
+}
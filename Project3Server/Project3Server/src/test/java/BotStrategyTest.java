@@ -0,0 +1,200 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BotStrategyTest {
+
+	// Small MCTS budget, enough to beat random play and quick to run
+	private static final MctsBot LIGHT_MCTS = new MctsBot(2_000, 1000);
+
+	// Plays the given columns alternating between player 1 and player 2
+	private Connect4Game play(String columns) {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		for (char c : columns.toCharArray()) {
+			assertTrue(game.makeMove(c - '0', game.getCurrentPlayer()));
+			game.switchTurn();
+		}
+		return game;
+	}
+
+	// Plays one game, player 1 first, and returns the winner (0 for a draw)
+	private int playOut(BotStrategy first, BotStrategy second) {
+		Connect4Game game = play("");
+		while (!game.checkWinner() && !game.checkDraw()) {
+			BotStrategy bot = game.getCurrentPlayer() == 1 ? first : second;
+			int col = bot.chooseMove(game.copy());
+			assertTrue(game.makeMove(col, game.getCurrentPlayer()), "illegal column " + col);
+			if (!game.checkWinner()) {
+				game.switchTurn();
+			}
+		}
+		return game.checkWinner() ? game.getWinner() : 0;
+	}
+
+	@Test
+	void difficultyPicksStrategy() {
+		assertSame(RandomBot.INSTANCE, BotStrategy.forDifficulty(1));
+		assertSame(NegamaxBot.HARD, BotStrategy.forDifficulty(2));
+		assertSame(NegamaxBot.EXPERT, BotStrategy.forDifficulty(3));
+		assertSame(MctsBot.STRONG, BotStrategy.forDifficulty(4));
+		assertThrows(IllegalArgumentException.class, () -> BotStrategy.forDifficulty(0));
+		assertThrows(IllegalArgumentException.class, () -> BotStrategy.forDifficulty(5));
+	}
+
+	@Test
+	void randomBotOnlyPicksLegalColumns() {
+		Connect4Game game = play("333333");
+		for (int i = 0; i < 200; i++) {
+			int col = RandomBot.INSTANCE.chooseMove(game);
+			assertTrue(game.isValidMove(col));
+			assertNotEquals(3, col);
+		}
+	}
+
+	@Test
+	void takesImmediateWin() {
+		assertEquals(3, NegamaxBot.HARD.chooseMove(play("001122")));
+		assertEquals(3, HeuristicBot.INSTANCE.chooseMove(play("001122")));
+	}
+
+	@Test
+	void blocksImmediateLoss() {
+		assertEquals(3, NegamaxBot.HARD.chooseMove(play("06162")));
+	}
+
+	@Test
+	void findsDoubleThreat() {
+		// Player 1 has the bottom of columns 2 and 3; columns 1 or 4 make two open ends at once,
+		// while the heuristic bot just takes the middle
+		int col = NegamaxBot.HARD.chooseMove(play("2636"));
+		assertTrue(col == 1 || col == 4, "played " + col);
+		assertEquals(3, HeuristicBot.INSTANCE.chooseMove(play("2636")));
+	}
+
+	@Test
+	void searchLeavesGameUntouched() {
+		// The expert's search without its opening book, so it searches whether or not a book is installed
+		NegamaxBot expert = NegamaxBot.EXPERT;
+		NegamaxBot search = new NegamaxBot(expert.getMaxDepth(), expert.getNodeBudget(), expert.getTimeCapMillis(), expert.getThreads(), null);
+		Connect4Game game = play("3342");
+		long key = game.getPositionKey();
+		search.chooseMove(game);
+		assertEquals(key, game.getPositionKey());
+		assertEquals(4, game.getMoveCount());
+	}
+
+	@Test
+	void onlyTheExpertPlaysFromTheOpeningBook() {
+		assertTrue(NegamaxBot.EXPERT.usesOpeningBook());
+		assertFalse(NegamaxBot.HARD.usesOpeningBook());
+		assertFalse(new NegamaxBot(6, 100_000, 1000).usesOpeningBook());
+	}
+
+	@Test
+	void thinkingTimeFollowsTurnClock() {
+		Connect4Game game = play("");
+		game.setTurnDuration(30);
+		assertEquals(1500, NegamaxBot.EXPERT.thinkingMillis(game));
+		game.setTurnDuration(2);
+		assertEquals(500, NegamaxBot.EXPERT.thinkingMillis(game));
+		assertEquals(250, NegamaxBot.HARD.thinkingMillis(game));
+	}
+
+	@Test
+	void deepeningStopsAtDeadline() {
+		// Unlimited depth and nodes, so only the clock can end the search
+		NegamaxBot bot = new NegamaxBot(64, Long.MAX_VALUE, 100, new TranspositionTable(1));
+		Connect4Game game = play("");
+		long start = System.nanoTime();
+		int col = bot.chooseMove(game);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		assertTrue(game.isValidMove(col));
+		assertTrue(millis < 1000, "took " + millis + " ms");
+		assertEquals(0, game.getMoveCount());
+	}
+
+	@Test
+	void parallelSearchFindsSameMoves() {
+		NegamaxBot parallel = new NegamaxBot(64, Long.MAX_VALUE, 200, 4, new TranspositionTable(4));
+		assertEquals(4, parallel.getThreads());
+		assertEquals(3, parallel.chooseMove(play("001122")));
+		assertEquals(3, parallel.chooseMove(play("06162")));
+		int col = parallel.chooseMove(play("2636"));
+		assertTrue(col == 1 || col == 4, "played " + col);
+
+		Connect4Game game = play("3342");
+		long key = game.getPositionKey();
+		assertTrue(game.isValidMove(parallel.chooseMove(game)));
+		assertEquals(key, game.getPositionKey());
+	}
+
+	@Test
+	void mctsTakesWinsAndBlocks() {
+		assertEquals(3, LIGHT_MCTS.chooseMove(play("001122")));
+		assertEquals(3, LIGHT_MCTS.chooseMove(play("06162")));
+	}
+
+	@Test
+	void mctsLeavesGameUntouched() {
+		Connect4Game game = play("3342");
+		long key = game.getPositionKey();
+		assertTrue(game.isValidMove(LIGHT_MCTS.chooseMove(game)));
+		assertEquals(key, game.getPositionKey());
+		assertEquals(4, game.getMoveCount());
+	}
+
+	@Test
+	void mctsBeatsRandomPlay() {
+		// Both sides play randomly in part, so a rare loss is possible; require a clear majority
+		int wins = 0;
+		for (int i = 0; i < 5; i++) {
+			wins += playOut(LIGHT_MCTS, RandomBot.INSTANCE) == 1 ? 1 : 0;
+			wins += playOut(RandomBot.INSTANCE, LIGHT_MCTS) == 2 ? 1 : 0;
+		}
+		assertTrue(wins >= 8, "won " + wins + " of 10");
+	}
+
+	@Test
+	void mctsStopsAtItsTimeCap() {
+		MctsBot capped = new MctsBot(1_000_000, 20); // seconds of playouts without the cap
+		Connect4Game game = play("3342");
+		long start = System.nanoTime();
+		assertTrue(game.isValidMove(capped.chooseMove(game)));
+		assertTrue(System.nanoTime() - start < 2_000_000_000L);
+	}
+
+	@Test
+	void tournamentPlaysEveryGame() throws Exception {
+		Map<String, Tournament.Clock> clocks = new HashMap<>();
+		List<Tournament.Pairing> pairings = Tournament.run(Arrays.asList("random", "heuristic", "mcts-light"),
+				6, 2, 2, BoardGeometry.STANDARD, clocks);
+		assertEquals(3, pairings.size());
+		for (Tournament.Pairing pairing : pairings) {
+			assertEquals(6, pairing.games());
+			assertTrue(pairing.score() >= 0 && pairing.score() <= 1);
+		}
+		assertTrue(clocks.get("heuristic").moves.sum() > 0);
+		assertThrows(IllegalArgumentException.class,
+				() -> Tournament.run(Arrays.asList("random", "nobody"), 1, 1, 0, BoardGeometry.STANDARD, clocks));
+	}
+
+	@Test
+	void fullBoardHasNoMove() {
+		assertEquals(-1, NegamaxBot.HARD.chooseMove(play("012345601234560123456102345621034562103456")));
+		assertEquals(-1, LIGHT_MCTS.chooseMove(play("012345601234560123456102345621034562103456")));
+	}
+
+	@Test
+	void searchBeatsRandomPlay() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(1, playOut(NegamaxBot.HARD, RandomBot.INSTANCE));
+			assertEquals(2, playOut(RandomBot.INSTANCE, NegamaxBot.HARD));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentIntMapTest {
+
+	@Test
+	void basicOperations() {
+		ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(0, "zero"));
+		assertNull(map.put(-3, "bot"));
+		assertEquals("zero", map.put(0, "nought"));
+		assertEquals("nought", map.putIfAbsent(0, "ignored"));
+		assertEquals("nought", map.get(0));
+		assertEquals("bot", map.get(-3));
+		assertEquals("none", map.getOrDefault(7, "none"));
+		assertTrue(map.containsKey(-3));
+		assertEquals(2, map.size());
+
+		assertFalse(map.remove(-3, "other"));
+		assertTrue(map.remove(-3, map.get(-3)));
+		assertEquals("nought", map.remove(0));
+		assertNull(map.remove(0));
+		assertTrue(map.isEmpty());
+		assertThrows(NullPointerException.class, () -> map.put(1, null));
+	}
+
+	@Test
+	void matchesHashMapUnderRandomChurn() {
+		// Small key range so probe runs collide, grow and get shifted back on removal
+		ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+		Map<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 200_000; i++) {
+			int key = random.nextInt(3_000) - 500;
+			switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(expected.put(key, i), map.put(key, i));
+					break;
+				case 1:
+					assertEquals(expected.remove(key), map.remove(key));
+					break;
+				default:
+					assertEquals(expected.get(key), map.get(key));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		assertEquals(expected.size(), map.values().size());
+	}
+
+	@Test
+	void readersAlwaysSeeStableEntriesWhileOthersChurn() throws InterruptedException {
+		ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+		int stable = 1_000;
+		for (int key = 0; key < stable; key++) {
+			map.put(key, key);
+		}
+		AtomicInteger misses = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int writer = t;
+			// Writers add and remove their own keys, growing and shifting the same stripes
+			threads.add(new Thread(() -> {
+				for (int round = 0; round < 20; round++) {
+					for (int i = 0; i < 2_000; i++) {
+						map.put(stable + writer * 100_000 + i, i);
+					}
+					for (int i = 0; i < 2_000; i++) {
+						map.remove(stable + writer * 100_000 + i);
+					}
+				}
+			}));
+			threads.add(new Thread(() -> {
+				for (int round = 0; round < 200; round++) {
+					for (int key = 0; key < stable; key++) {
+						Integer value = map.get(key);
+						if (value == null || value != key) {
+							misses.incrementAndGet();
+						}
+					}
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, misses.get());
+		assertEquals(stable, map.size());
+	}
+}
@@ -0,0 +1,371 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class Connect4GameTest {
+
+	// Plays the given columns alternating between player 1 and player 2
+	private Connect4Game play(String columns) {
+		return play(BoardGeometry.STANDARD, columns);
+	}
+
+	private Connect4Game play(BoardGeometry geometry, String columns) {
+		Connect4Game game = new Connect4Game(geometry);
+		game.setPlayers(1, 2);
+		for (char c : columns.toCharArray()) {
+			assertTrue(game.makeMove(c - '0', game.getCurrentPlayer()));
+			game.switchTurn();
+		}
+		return game;
+	}
+
+	@Test
+	void emptyBoardString() {
+		Connect4Game game = new Connect4Game();
+		assertEquals("0000000,0000000,0000000,0000000,0000000,0000000", game.getBoardString());
+		assertFalse(game.checkWinner());
+		assertFalse(game.checkDraw());
+	}
+
+	@Test
+	void discsStackFromTheBottom() {
+		Connect4Game game = play("334");
+		assertEquals("0000000,0000000,0000000,0000000,0002000,0001100", game.getBoardString());
+		int[][] board = game.getBoard();
+		assertEquals(1, board[5][3]);
+		assertEquals(2, board[4][3]);
+		assertEquals(1, board[5][4]);
+	}
+
+	@Test
+	void fullColumnRejectsMoves() {
+		Connect4Game game = play("000000");
+		assertFalse(game.isValidMove(0));
+		assertFalse(game.makeMove(0, 1));
+		assertFalse(game.isValidMove(-1));
+		assertFalse(game.isValidMove(7));
+	}
+
+	@Test
+	void detectsEveryDirection() {
+		Connect4Game horizontal = play("0011223");
+		assertTrue(horizontal.checkWinner());
+		assertEquals(1, horizontal.getWinner());
+
+		Connect4Game vertical = play("0101010");
+		assertTrue(vertical.checkWinner());
+		assertEquals(1, vertical.getWinner());
+
+		Connect4Game rising = play("011223233");
+		assertFalse(rising.checkWinner());
+		rising = play("01122323363");
+		assertTrue(rising.checkWinner());
+		assertEquals(1, rising.getWinner());
+
+		Connect4Game falling = play("655443433");
+		assertFalse(falling.checkWinner());
+		falling = play("65544343303");
+		assertTrue(falling.checkWinner());
+		assertEquals(1, falling.getWinner());
+	}
+
+	@Test
+	void discDroppedIntoGapCompletesLine() {
+		// Player 1 holds columns 0, 1 and 3 on the bottom row, then fills column 2
+		Connect4Game game = play("0515362");
+		assertTrue(game.checkWinner());
+		assertEquals(1, game.getWinner());
+	}
+
+	@Test
+	void resultStaysCachedAfterWin() {
+		Connect4Game game = play("0101010");
+		game.makeMove(6, 2);
+		assertTrue(game.checkWinner());
+		assertEquals(1, game.getWinner());
+	}
+
+	@Test
+	void noWrapAcrossColumns() {
+		// The top two cells of column 0 and the bottom two of column 1 would be adjacent bits without the sentinel row
+		Connect4Game game = play("00000202121");
+		assertFalse(game.checkWinner());
+	}
+
+	@Test
+	void legalMovesTrackFullColumns() {
+		Connect4Game game = play("000000");
+		assertEquals(0b1111110, game.getLegalMoves());
+		assertEquals(6, game.getColumnHeight(0));
+		assertEquals(0, game.getColumnHeight(1));
+
+		game.undo();
+		assertEquals(0b1111111, game.getLegalMoves());
+		assertEquals(5, game.getColumnHeight(0));
+	}
+
+	@Test
+	void fullBoardIsDraw() {
+		Connect4Game game = play("012345601234560123456102345621034562103456");
+		assertTrue(game.checkDraw());
+		assertEquals(0, game.getLegalMoves());
+	}
+
+	@Test
+	void playAndUndoRestorePosition() {
+		Connect4Game game = play("334455");
+		String before = game.getBoardString();
+		int player = game.getCurrentPlayer();
+
+		assertTrue(game.play(2));
+		assertTrue(game.checkWinner()); // bottom row 2..5 for player 1
+		assertEquals(2, game.getCurrentPlayer());
+		assertTrue(game.undo());
+
+		assertFalse(game.checkWinner());
+		assertEquals(0, game.getWinner());
+		assertEquals(before, game.getBoardString());
+		assertEquals(player, game.getCurrentPlayer());
+		assertEquals(6, game.getMoveCount());
+	}
+
+	@Test
+	void undoOnEmptyBoardFails() {
+		Connect4Game game = new Connect4Game();
+		assertFalse(game.undo());
+	}
+
+	@Test
+	void transpositionsShareKey() {
+		assertEquals(play("3344").getPositionKey(), play("4433").getPositionKey());
+		assertNotEquals(play("3344").getPositionKey(), play("3434").getPositionKey());
+	}
+
+	@Test
+	void mirroredPositionsShareCanonicalKey() {
+		Connect4Game left = play("012");
+		Connect4Game right = play("654");
+		assertNotEquals(left.getPositionKey(), right.getPositionKey());
+		assertEquals(left.getCanonicalKey(), right.getCanonicalKey());
+		assertNotEquals(left.isCanonicalMirrored(), right.isCanonicalMirrored());
+	}
+
+	@Test
+	void undoRestoresKey() {
+		Connect4Game game = play("33");
+		long key = game.getPositionKey();
+		game.play(2);
+		assertNotEquals(key, game.getPositionKey());
+		game.undo();
+		assertEquals(key, game.getPositionKey());
+	}
+
+	@Test
+	void moveHistoryRebuildsGame() {
+		Connect4Game game = play("3344225");
+		byte[] history = game.getMoveHistory();
+		assertEquals(7, history.length);
+
+		Connect4Game rebuilt = Connect4Game.fromMoveHistory(history, 1, 2);
+		assertEquals(game.getBoardString(), rebuilt.getBoardString());
+		assertEquals(game.getPositionKey(), rebuilt.getPositionKey());
+		assertEquals(game.getWinner(), rebuilt.getWinner());
+		assertEquals(game.getCurrentPlayer(), rebuilt.getCurrentPlayer());
+	}
+
+	@Test
+	void moveHistoryKeepsSkippedTurns() {
+		Connect4Game game = play("3");
+		game.switchTurn(); // player 2 timed out
+		game.makeMove(4, game.getCurrentPlayer());
+		game.switchTurn();
+
+		Connect4Game rebuilt = Connect4Game.fromMoveHistory(game.getMoveHistory(), 1, 2);
+		assertEquals("0000000,0000000,0000000,0000000,0000000,0001100", rebuilt.getBoardString());
+		assertEquals(2, rebuilt.getCurrentPlayer());
+	}
+
+	@Test
+	void positionAtReplaysPrefix() {
+		Connect4Game game = play("334455");
+		assertEquals(play("334").getBoardString(), game.getPositionAt(3).getBoardString());
+		assertEquals(new Connect4Game().getBoardString(), game.getPositionAt(0).getBoardString());
+		assertThrows(IllegalArgumentException.class, () -> game.getPositionAt(7));
+	}
+
+	@Test
+	void fullGameRecordFitsUnderFiftyBytes() {
+		Connect4Game game = play("012345601234560123456102345621034562103456");
+		assertTrue(game.getMoveHistory().length < 50);
+	}
+
+	@Test
+	void largerBoardsSpanSeveralWords() {
+		BoardGeometry nine = BoardGeometry.of(9, 9, 5);
+		Connect4Game game = play(nine, "00112233");
+		assertFalse(game.checkWinner()); // four in a row is not enough on connect 5
+		assertTrue(game.play(4));
+		assertTrue(game.checkWinner());
+		assertEquals(1, game.getWinner());
+		assertEquals(9, game.getBoardString().split(",").length);
+		assertEquals("111110000", game.getBoardString().split(",")[8]);
+	}
+
+	@Test
+	void verticalLineHighOnWideBoard() {
+		// Column 7 of an 8x8 board lives in the second word of the bitboard
+		Connect4Game game = play(BoardGeometry.of(8, 8, 4), "70707070");
+		assertTrue(game.checkWinner());
+		assertEquals(1, game.getWinner());
+		assertEquals(BoardGeometry.of(8, 8, 4), game.getGeometry());
+	}
+
+	@Test
+	void geometryRejectsUnsupportedShapes() {
+		assertThrows(IllegalArgumentException.class, () -> BoardGeometry.of(20, 7, 4));
+		assertThrows(IllegalArgumentException.class, () -> BoardGeometry.of(6, 7, 9));
+		assertSame(BoardGeometry.STANDARD, BoardGeometry.parse("0,30".split(","), 2));
+		assertSame(BoardGeometry.of(7, 8, 4), BoardGeometry.parse("0,30,7,8,4".split(","), 2));
+	}
+
+	@Test
+	void centerFirstColumns() {
+		assertArrayEquals(new int[]{3, 2, 4, 1, 5, 0, 6}, BoardGeometry.STANDARD.getCenterFirstColumns());
+		assertArrayEquals(new int[]{3, 4, 2, 5, 1, 6, 0, 7}, BoardGeometry.of(8, 8, 4).getCenterFirstColumns());
+	}
+
+	@Test
+	void shapesDoNotShareKeys() {
+		assertNotEquals(play("33").getPositionKey(), play(BoardGeometry.of(7, 8, 4), "33").getPositionKey());
+	}
+
+	@Test
+	void threatMasksMatchBruteForce() {
+		Random random = new Random(7);
+		BoardGeometry[] shapes = {BoardGeometry.STANDARD, BoardGeometry.of(8, 8, 4), BoardGeometry.of(9, 9, 5)};
+		for (BoardGeometry shape : shapes) {
+			for (int round = 0; round < 50; round++) {
+				Connect4Game game = new Connect4Game(shape);
+				game.setPlayers(1, 2);
+				while (!game.checkWinner() && !game.checkDraw()) {
+					for (int side = 0; side < 2; side++) {
+						int player = side + 1;
+						int wins = 0;
+						int safe = 0;
+						for (int col = 0; col < shape.getCols(); col++) {
+							Connect4Game probe = game.copy();
+							if (!probe.makeMove(col, player)) continue;
+							if (probe.getWinner() == player) wins |= 1 << col;
+							Connect4Game reply = probe.copy();
+							if (!reply.makeMove(col, 3 - player) || reply.getWinner() != 3 - player) safe |= 1 << col;
+						}
+						assertEquals(wins, game.getWinningColumns(side));
+						// A winning drop ends the game, so only compare safety on the other columns
+						assertEquals(safe & ~wins, game.getSafeColumns(side) & ~wins);
+					}
+					int legal = game.getLegalMoves();
+					int col;
+					do {
+						col = random.nextInt(shape.getCols());
+					} while ((legal & (1 << col)) == 0);
+					game.play(col);
+				}
+			}
+		}
+	}
+
+	@Test
+	void stackedThreatsAndUnsafeCells() {
+		// Player 1 owns columns 1..3 on rows 0 and 1, so columns 0 and 4 win on both rows
+		Connect4Game game = play("15162526363");
+		BoardGeometry g = BoardGeometry.STANDARD;
+		long[] cells = new long[g.getWords()];
+		long bottom = (1L << g.bitIndex(0, 0)) | (1L << g.bitIndex(0, 4));
+		long second = (1L << g.bitIndex(1, 0)) | (1L << g.bitIndex(1, 4));
+
+		game.getWinningCells(0, cells);
+		assertEquals(bottom | second, cells[0]);
+
+		game.getDoubleThreats(0, cells);
+		assertEquals(bottom | second, cells[0]);
+
+		// Player 2 must not fill either bottom cell, player 1 would win on top of it
+		game.getDoNotPlayBelow(1, cells);
+		assertEquals(bottom, cells[0]);
+		assertEquals(0, game.getSafeColumns(1) & 0b0010001);
+	}
+
+	@Test
+	void perftMatchesKnownCounts() throws Exception {
+		for (int depth = 0; depth <= 7; depth++) {
+			assertEquals(Perft.STANDARD_COUNTS[depth], Perft.perft(new Connect4Game(), depth));
+		}
+		assertEquals(Perft.STANDARD_COUNTS[7], Perft.perftParallel(new Connect4Game(), 7, 4));
+	}
+
+	@Test
+	void snapshotsFollowPublishedChanges() {
+		Connect4Game game = play("33");
+		GameSnapshot before = game.getSnapshot();
+		assertEquals(game.getBoardString(), before.getBoardString());
+
+		game.makeMove(4, game.getCurrentPlayer());
+		GameSnapshot after = game.getSnapshot();
+		assertTrue(after.getVersion() > before.getVersion());
+		assertEquals(2, before.getMoveCount()); // old snapshot is untouched
+		assertEquals(3, after.getMoveCount());
+		assertEquals(game.getBoardString(), after.getBoardString());
+	}
+
+	@Test
+	void searchDoesNotPublish() {
+		Connect4Game game = play("33");
+		GameSnapshot published = game.getSnapshot();
+		game.play(4);
+		game.undo();
+		assertSame(published, game.getSnapshot());
+	}
+
+	@Test
+	void snapshotRebuildsPrivateGame() {
+		Connect4Game game = play("3");
+		game.switchTurn(); // player 2 timed out, player 1 moves again
+		Connect4Game view = game.getSnapshot().toGame();
+		assertEquals(game.getBoardString(), view.getBoardString());
+		assertEquals(game.getCurrentPlayer(), view.getCurrentPlayer());
+		assertEquals(game.getPositionKey(), view.getPositionKey());
+	}
+
+	@Test
+	void copyIsIndependent() {
+		Connect4Game game = play("33");
+		Connect4Game copy = game.copy();
+		copy.makeMove(4, 1);
+		assertEquals(play("33").getBoardString(), game.getBoardString());
+		assertNotEquals(game.getBoardString(), copy.getBoardString());
+	}
+
+	@Test
+	void copyPublishesOnce() {
+		Connect4Game copy = play("33").copy();
+		GameSnapshot snapshot = copy.getSnapshot();
+		assertEquals(0, snapshot.getVersion()); // no empty-board snapshot built first
+		assertEquals(copy.getBoardString(), snapshot.getBoardString());
+		assertEquals(2, snapshot.getMoveCount());
+	}
+
+	@Test
+	void rebuiltGamesPublishOnce() {
+		Connect4Game game = play("33");
+		assertEquals(0, Connect4Game.fromMoveHistory(game.getMoveHistory(), 1, 2).getSnapshot().getVersion());
+
+		// A timed-out turn: the rebuilt game hands the turn on before its first snapshot
+		game.switchTurn();
+		Connect4Game rebuilt = game.getSnapshot().toGame();
+		assertEquals(game.getCurrentPlayer(), rebuilt.getCurrentPlayer());
+		assertEquals(0, rebuilt.getSnapshot().getVersion());
+		assertEquals(game.getPositionKey(), rebuilt.getPositionKey());
+	}
+}
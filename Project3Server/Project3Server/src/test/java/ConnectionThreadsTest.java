@@ -0,0 +1,39 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConnectionThreadsTest {
+
+	@Test
+	void platformThreadsAreNamedPerConnection() throws InterruptedException {
+		ThreadFactory factory = ConnectionThreads.create(ConnectionThreads.PLATFORM);
+		CountDownLatch ran = new CountDownLatch(1);
+		Thread first = factory.newThread(ran::countDown);
+		Thread second = factory.newThread(() -> { });
+		assertEquals("client-1", first.getName());
+		assertEquals("client-2", second.getName());
+		assertFalse(first.isDaemon()); // connections keep the server alive, as before
+		first.start();
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void virtualModeRunsConnectionsOnAnyJava() throws InterruptedException {
+		// Virtual threads on Java 21+, platform threads before that
+		ThreadFactory factory = ConnectionThreads.create(ConnectionThreads.VIRTUAL);
+		CountDownLatch ran = new CountDownLatch(1);
+		Thread thread = factory.newThread(ran::countDown);
+		assertTrue(thread.getName().startsWith("client-"));
+		thread.start();
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void unknownModeIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> ConnectionThreads.create("green"));
+	}
+}
@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class GameMailboxTest {
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+	@AfterEach
+	void shutDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	void eventsFromManyThreadsRunOneAtATimeInPostOrder() throws InterruptedException {
+		GameMailbox mailbox = new GameMailbox(pool);
+		int threads = 8;
+		int perThread = 2_000;
+		List<List<Integer>> seen = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			seen.add(new ArrayList<>()); // plain lists: only the mailbox touches them
+		}
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(threads * perThread);
+
+		List<Thread> posters = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int poster = t;
+			posters.add(new Thread(() -> {
+				for (int i = 0; i < perThread; i++) {
+					int value = i;
+					mailbox.post(() -> {
+						if (running.incrementAndGet() != 1) {
+							overlaps.incrementAndGet();
+						}
+						seen.get(poster).add(value);
+						running.decrementAndGet();
+						done.countDown();
+					});
+				}
+			}));
+		}
+		posters.forEach(Thread::start);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+
+		assertEquals(0, overlaps.get());
+		for (List<Integer> values : seen) {
+			assertEquals(perThread, values.size());
+			for (int i = 0; i < perThread; i++) {
+				assertEquals(i, values.get(i)); // each poster's events kept their order
+			}
+		}
+	}
+
+	@Test
+	void failingEventDoesNotStopTheMailbox() throws InterruptedException {
+		GameMailbox mailbox = new GameMailbox(pool);
+		CountDownLatch done = new CountDownLatch(1);
+		mailbox.post(() -> {
+			throw new IOException("client went away");
+		});
+		mailbox.post(done::countDown);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void separateGamesRunInParallel() throws InterruptedException {
+		GameMailbox first = new GameMailbox(pool);
+		GameMailbox second = new GameMailbox(pool);
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		CountDownLatch done = new CountDownLatch(2);
+		for (GameMailbox mailbox : new GameMailbox[]{first, second}) {
+			mailbox.post(() -> {
+				bothRunning.countDown();
+				if (bothRunning.await(5, TimeUnit.SECONDS)) {
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void turnTimeoutsRunOnTheMailbox() throws InterruptedException {
+		GameMailbox mailbox = new GameMailbox(pool);
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		game.setTurnDuration(1);
+		CountDownLatch timedOut = new CountDownLatch(1);
+		Thread[] ranOn = new Thread[1];
+		game.startTurnTimer(() -> {
+			ranOn[0] = Thread.currentThread();
+			timedOut.countDown();
+		}, mailbox);
+		assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+		assertFalse(ranOn[0].getName().startsWith("turn-timer"));
+	}
+}
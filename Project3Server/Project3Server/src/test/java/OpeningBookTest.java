@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OpeningBookTest {
+
+	@TempDir
+	Path dir;
+
+	private Connect4Game play(String columns) {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		for (char c : columns.toCharArray()) {
+			game.play(c - '0');
+		}
+		return game;
+	}
+
+	private OpeningBook build(int plies) throws Exception {
+		Path file = dir.resolve("book.bin");
+		OpeningBook.generate(BoardGeometry.STANDARD, plies, 6, 20_000, 2, file);
+		return OpeningBook.open(file);
+	}
+
+	@Test
+	void coversEarlyPositions() throws Exception {
+		OpeningBook book = build(3);
+		assertEquals(3, book.getMaxPlies());
+		assertSame(BoardGeometry.STANDARD, book.getGeometry());
+		// 1 + 4 + 25 distinct positions before ply 3 once mirror images are folded together
+		assertEquals(30, book.size());
+
+		assertEquals(3, book.lookup(play("")));
+		for (String moves : new String[]{"0", "1", "2", "3", "33", "06", "15"}) {
+			Connect4Game game = play(moves);
+			assertTrue(game.isValidMove(book.lookup(game)), moves);
+			assertNotEquals(Integer.MIN_VALUE, book.lookupScore(game), moves);
+		}
+	}
+
+	@Test
+	void mirroredPositionsGetMirroredColumns() throws Exception {
+		OpeningBook book = build(3);
+		assertEquals(6 - book.lookup(play("01")), book.lookup(play("65")));
+		assertEquals(book.lookupScore(play("01")), book.lookupScore(play("65")));
+	}
+
+	@Test
+	void positionsOutsideTheBookMiss() throws Exception {
+		OpeningBook book = build(3);
+		assertEquals(-1, book.lookup(play("333")));
+		assertEquals(Integer.MIN_VALUE, book.lookupScore(play("3333")));
+
+		Connect4Game otherShape = new Connect4Game(BoardGeometry.of(7, 8, 4));
+		assertEquals(-1, book.lookup(otherShape));
+	}
+
+	@Test
+	void rejectsDamagedFiles() throws Exception {
+		build(2);
+		Path file = dir.resolve("book.bin");
+		byte[] bytes = Files.readAllBytes(file);
+		Path truncated = dir.resolve("truncated.bin");
+		Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+		assertThrows(java.io.IOException.class, () -> OpeningBook.open(truncated));
+
+		Path garbage = dir.resolve("garbage.bin");
+		Files.write(garbage, new byte[64]);
+		assertThrows(java.io.IOException.class, () -> OpeningBook.open(garbage));
+	}
+}
@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class PondererTest {
+
+	private final NegamaxBot bot = new NegamaxBot(6, 100_000, 1000, new TranspositionTable(1));
+
+	// Plays the given columns the way the server does: makeMove, then switchTurn
+	private Connect4Game play(String columns) {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, -2);
+		for (char c : columns.toCharArray()) {
+			assertTrue(game.makeMove(c - '0', game.getCurrentPlayer()));
+			game.switchTurn();
+		}
+		return game;
+	}
+
+	@Test
+	void answersEveryHumanReply() {
+		Connect4Game game = play("3342");
+		Ponderer ponderer = Ponderer.start(bot, game.getSnapshot().toGame(), Runnable::run);
+		assertEquals(7, ponderer.size());
+
+		// The human moves on the live game; the bot's view is rebuilt from the snapshot
+		for (int col = 0; col < 7; col++) {
+			Connect4Game live = play("3342" + col);
+			Connect4Game view = live.getSnapshot().toGame();
+			int reply = ponderer.takeReply(view);
+			assertTrue(view.isValidMove(reply), "no answer after " + col);
+		}
+	}
+
+	@Test
+	void skipsRepliesThatEndTheGame() {
+		// Player 1 wins by playing column 3, nothing is left to answer there
+		Ponderer ponderer = Ponderer.start(bot, play("001122").getSnapshot().toGame(), Runnable::run);
+		assertEquals(6, ponderer.size());
+		assertEquals(-1, ponderer.takeReply(play("0011223").getSnapshot().toGame()));
+	}
+
+	@Test
+	void cancelledPondererStops() {
+		Runnable[] pending = new Runnable[1];
+		Ponderer ponderer = Ponderer.start(bot, play("33").getSnapshot().toGame(), task -> pending[0] = task);
+		ponderer.cancel();
+		pending[0].run();
+		assertEquals(0, ponderer.size());
+		assertEquals(-1, ponderer.takeReply(play("333").getSnapshot().toGame()));
+	}
+
+	@Test
+	void pondersWithTheSingleThreadedSearch() {
+		// A multi-threaded bot would put helper searches on the shared pool from chooseMove
+		AtomicInteger ponderSearches = new AtomicInteger();
+		BotStrategy strategy = new BotStrategy() {
+			@Override
+			public int chooseMove(Connect4Game game) {
+				throw new AssertionError("pondering used the live move search");
+			}
+
+			@Override
+			public int ponderMove(Connect4Game game, AtomicBoolean stop) {
+				ponderSearches.incrementAndGet();
+				return game.getGeometry().getCenterFirstColumns()[0];
+			}
+		};
+		Ponderer ponderer = Ponderer.start(strategy, play("3342").getSnapshot().toGame(), Runnable::run);
+		assertEquals(7, ponderSearches.get());
+		assertEquals(7, ponderer.size());
+	}
+
+	@Test
+	void onlySearchingBotsPonder() {
+		assertTrue(NegamaxBot.HARD.ponders());
+		assertFalse(RandomBot.INSTANCE.ponders());
+	}
+}
@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+
+	private Connect4Game play(String columns) {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		for (char c : columns.toCharArray()) {
+			game.play(c - '0');
+		}
+		return game;
+	}
+
+	@Test
+	void sizeRoundsDownToPowerOfTwo() {
+		assertEquals(1 << 16, new TranspositionTable(1).getSlots());
+		assertEquals(1 << 17, new TranspositionTable(3).getSlots());
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+	}
+
+	@Test
+	void storedEntryReadsBack() {
+		TranspositionTable table = new TranspositionTable(1);
+		Connect4Game game = play("3342");
+		assertEquals(0, table.probe(game));
+
+		table.store(game, 9, -1234, TranspositionTable.LOWER, 5);
+		long entry = table.probe(game);
+		assertEquals(-1234, TranspositionTable.score(entry));
+		assertEquals(9, TranspositionTable.depth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+		assertEquals(5, TranspositionTable.bestMove(entry, game));
+		assertEquals(0, table.probe(play("3343")));
+	}
+
+	@Test
+	void mirrorSharesEntryWithFlippedMove() {
+		TranspositionTable table = new TranspositionTable(1);
+		table.store(play("0112"), 4, 7, TranspositionTable.EXACT, 1);
+
+		long entry = table.probe(play("6554"));
+		assertNotEquals(0, entry);
+		assertEquals(5, TranspositionTable.bestMove(entry, play("6554")));
+	}
+
+	@Test
+	void deeperEntriesSurviveUntilNextSearch() {
+		TranspositionTable table = new TranspositionTable(1);
+		Connect4Game game = play("33");
+		table.store(game, 10, 1, TranspositionTable.EXACT, 3);
+		table.store(game, 4, 2, TranspositionTable.EXACT, 2);
+		assertEquals(10, TranspositionTable.depth(table.probe(game)));
+
+		table.newSearch();
+		table.store(game, 4, 2, TranspositionTable.EXACT, 2);
+		assertEquals(4, TranspositionTable.depth(table.probe(game)));
+	}
+
+	@Test
+	void otherSearchesDoNotAgeOutARunningSearch() {
+		TranspositionTable table = new TranspositionTable(1);
+		Connect4Game game = play("33");
+		long running = table.newSearch();
+		table.store(game, 10, 1, TranspositionTable.EXACT, 3);
+
+		// Many moves from other games start and finish meanwhile, enough to wrap an 8-bit age
+		for (int i = 0; i < 1_000; i++) {
+			table.endSearch(table.newSearch());
+		}
+		table.store(game, 4, 2, TranspositionTable.EXACT, 2);
+		assertEquals(10, TranspositionTable.depth(table.probe(game)));
+
+		// Once it has finished its entries give way
+		table.endSearch(running);
+		table.newSearch();
+		table.store(game, 4, 2, TranspositionTable.EXACT, 2);
+		assertEquals(4, TranspositionTable.depth(table.probe(game)));
+	}
+
+	@Test
+	void searchesStartingAndEndingConcurrentlyLeaveNoneRunning() throws Exception {
+		TranspositionTable table = new TranspositionTable(1);
+		Connect4Game game = play("33");
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					table.endSearch(table.newSearch());
+				}
+			}));
+		}
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads) thread.join();
+
+		// Every search has ended, so a deeper entry gives way once the next one starts
+		table.store(game, 10, 1, TranspositionTable.EXACT, 3);
+		table.newSearch();
+		table.store(game, 4, 2, TranspositionTable.EXACT, 2);
+		assertEquals(4, TranspositionTable.depth(table.probe(game)));
+	}
+
+	@Test
+	void concurrentWritersNeverProduceMismatchedEntries() throws Exception {
+		// A tiny table so threads keep overwriting each other's slots. Every stored score is derived
+		// from its key, so any entry that passes the key check must carry the matching score.
+		TranspositionTable table = new TranspositionTable(1);
+		AtomicInteger mismatches = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			long seed = t;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				for (int round = 0; round < 2000; round++) {
+					Connect4Game game = play("");
+					for (int ply = 0; ply < 20 && game.getLegalMoves() != 0 && !game.checkWinner(); ply++) {
+						long entry = table.probe(game);
+						if (entry != 0 && TranspositionTable.score(entry) != (int) (game.getCanonicalKey() >>> 32)) {
+							mismatches.incrementAndGet();
+						}
+						table.store(game, ply, (int) (game.getCanonicalKey() >>> 32), TranspositionTable.EXACT, -1);
+						game.play(random.nextInt(7));
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads) thread.join();
+		assertEquals(0, mismatches.get());
+	}
+
+	@Test
+	void searchWithPrivateTable() {
+		// Searching through a private table still finds the win and the double threat
+		NegamaxBot withTable = new NegamaxBot(8, 1_000_000, 10_000, new TranspositionTable(8));
+		assertEquals(3, withTable.chooseMove(play("001122")));
+		int col = withTable.chooseMove(play("2636"));
+		assertTrue(col == 1 || col == 4, "played " + col);
+	}
+}
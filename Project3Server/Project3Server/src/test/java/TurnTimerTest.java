@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TurnTimerTest {
+
+	@Test
+	void firesOnceAfterTheDelay() throws InterruptedException {
+		TurnTimer timer = new TurnTimer(10, 8);
+		CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+		timer.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(0, timer.pending());
+	}
+
+	@Test
+	void keepsFiringAfterATaskThrows() throws InterruptedException {
+		TurnTimer timer = new TurnTimer(10, 8);
+		CountDownLatch fired = new CountDownLatch(1);
+		timer.schedule(() -> { throw new AssertionError("broken task"); }, 10, TimeUnit.MILLISECONDS);
+		timer.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void cancelledTimeoutsNeverFire() throws InterruptedException {
+		TurnTimer timer = new TurnTimer(10, 8);
+		AtomicInteger fired = new AtomicInteger();
+		TurnTimer.Timeout timeout = timer.schedule(fired::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		assertEquals(0, timer.pending());
+		Thread.sleep(100);
+		assertEquals(0, fired.get());
+	}
+
+	@Test
+	void delaysLongerThanTheWheelWaitExtraTurns() throws InterruptedException {
+		// 4 buckets of 10 ms: a 95 ms delay goes round the wheel twice before firing
+		TurnTimer timer = new TurnTimer(10, 4);
+		CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+		timer.schedule(fired::countDown, 95, TimeUnit.MILLISECONDS);
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(95));
+	}
+
+	@Test
+	void manyGamesShareOneThread() throws InterruptedException {
+		TurnTimer timer = new TurnTimer(10, 64);
+		int games = 5_000;
+		CountDownLatch fired = new CountDownLatch(games / 2);
+		int threadsBefore = Thread.activeCount();
+		TurnTimer.Timeout[] timeouts = new TurnTimer.Timeout[games];
+		for (int i = 0; i < games; i++) {
+			timeouts[i] = timer.schedule(fired::countDown, 20 + i % 200, TimeUnit.MILLISECONDS);
+		}
+		for (int i = 1; i < games; i += 2) {
+			timeouts[i].cancel();
+		}
+		assertEquals(games / 2, timer.pending());
+		assertTrue(Thread.activeCount() <= threadsBefore);
+		assertTrue(fired.await(5, TimeUnit.SECONDS));
+		assertEquals(0, timer.pending());
+	}
+
+	@Test
+	void gameTurnClockRunsOutAndCanBeRestarted() throws InterruptedException {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		game.setTurnDuration(1);
+		AtomicInteger stale = new AtomicInteger();
+		game.startTurnTimer(stale::incrementAndGet);
+		CountDownLatch timedOut = new CountDownLatch(1);
+		game.startTurnTimer(timedOut::countDown); // a new turn replaces the old clock
+		assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+		assertEquals(0, stale.get());
+
+		AtomicInteger cancelled = new AtomicInteger();
+		game.startTurnTimer(cancelled::incrementAndGet);
+		game.cancelTurnTimer();
+		Thread.sleep(1500);
+		assertEquals(0, cancelled.get());
+	}
+
+	@Test
+	void turnDeadlineIsStoredAndCleared() {
+		Connect4Game game = new Connect4Game();
+		game.setPlayers(1, 2);
+		game.setTurnDuration(30);
+		assertEquals(0, game.getTurnDeadline());
+		long before = System.currentTimeMillis();
+		game.startTurnTimer(() -> { });
+		long deadline = game.getTurnDeadline();
+		assertTrue(deadline >= before + 30_000 && deadline <= System.currentTimeMillis() + 30_000);
+		game.cancelTurnTimer();
+		assertEquals(0, game.getTurnDeadline());
+	}
+}